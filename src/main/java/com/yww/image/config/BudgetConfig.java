@@ -0,0 +1,31 @@
+package com.yww.image.config;
+
+import com.yww.image.util.PixelBudget;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片像素预算配置
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+@Configuration
+public class BudgetConfig {
+
+    @Value("${image.budget.request-bytes:1073741824}")
+    long requestBytes;
+
+    @Value("${image.budget.global-bytes:4294967296}")
+    long globalBytes;
+
+    @Value("${image.budget.wait-millis:30000}")
+    long waitMillis;
+
+    @Bean
+    public PixelBudget pixelBudget() {
+        return new PixelBudget(requestBytes, globalBytes, waitMillis);
+    }
+
+}
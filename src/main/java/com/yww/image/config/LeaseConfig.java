@@ -0,0 +1,47 @@
+package com.yww.image.config;
+
+import cn.hutool.core.io.FileUtil;
+import com.yww.image.service.Deskew;
+import com.yww.image.service.LeaseWorker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 多节点共享目录处理配置，image.lease.enabled=true时启用
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "image.lease", name = "enabled", havingValue = "true")
+public class LeaseConfig {
+
+    @Value("${image.lease.inbox}")
+    String inbox;
+
+    @Value("${image.lease.output}")
+    String output;
+
+    @Value("${image.lease.lease-millis:60000}")
+    long leaseMillis;
+
+    @Value("${image.lease.batch-size:4}")
+    int batchSize;
+
+    @Value("${image.lease.poll-millis:1000}")
+    long pollMillis;
+
+    /**
+     * 认领到的图片纠偏后写入输出目录
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public LeaseWorker leaseWorker() {
+        FileUtil.mkdir(output);
+        return new LeaseWorker(inbox, file -> Deskew.deskew(file.toString(),
+                FileUtil.file(output, file.getFileName().toString()).getPath()),
+                leaseMillis, batchSize, pollMillis);
+    }
+
+}
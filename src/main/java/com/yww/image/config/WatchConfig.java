@@ -0,0 +1,142 @@
+package com.yww.image.config;
+
+import cn.hutool.core.io.FileUtil;
+import com.yww.image.service.Brightness;
+import com.yww.image.service.Deskew;
+import com.yww.image.service.Recognize;
+import com.yww.image.service.WatchIngest;
+import com.yww.image.util.ImageUtil;
+import com.yww.image.util.OpencvUtil;
+import com.yww.image.util.RemoveBlackUtil2;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * 单节点收件目录增量处理配置，image.watch.enabled=true时启用
+ * image.watch.operations为逗号分隔的处理操作，按顺序执行，默认只纠偏：
+ * deskew（纠偏）、crop（去黑边）、unstamp（去红章）、autogain（亮度校正）、clahe（对比度均衡）、gray（灰度化）
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "image.watch", name = "enabled", havingValue = "true")
+public class WatchConfig {
+
+    @Value("${image.watch.inbox}")
+    String inbox;
+
+    @Value("${image.watch.output}")
+    String output;
+
+    @Value("${image.watch.manifest:}")
+    String manifest;
+
+    @Value("${image.watch.stable-millis:2000}")
+    long stableMillis;
+
+    @Value("${image.watch.poll-millis:500}")
+    long pollMillis;
+
+    @Value("${image.watch.threads:2}")
+    int threads;
+
+    @Value("${image.watch.operations:deskew}")
+    String operations;
+
+    /**
+     * 写入完成的图片按配置的操作处理后写入输出目录，清单默认放在收件目录下
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public WatchIngest watchIngest() {
+        FileUtil.mkdir(output);
+        String path = manifest.isEmpty() ? FileUtil.file(inbox, ".manifest").getPath() : manifest;
+        return new WatchIngest(inbox, path, processor(operations), stableMillis, pollMillis, threads);
+    }
+
+    /**
+     * 按操作名生成单个文件的处理过程，启动时检查操作名
+     */
+    private Consumer<Path> processor(String operations) {
+        List<String> names = new ArrayList<>();
+        List<UnaryOperator<Mat>> chain = new ArrayList<>();
+        for (String name : operations.split(",")) {
+            name = name.trim().toLowerCase();
+            if (!name.isEmpty()) {
+                names.add(name);
+                chain.add(operation(name));
+            }
+        }
+        if (chain.isEmpty()) {
+            throw new IllegalArgumentException("image.watch.operations不能为空");
+        }
+        if (names.size() == 1 && "deskew".equals(names.get(0))) {
+            // 只纠偏时按解码策略缩小读取计算倾斜角，不需要解码整幅图片
+            return file -> Deskew.deskew(file.toString(), target(file));
+        }
+        return file -> {
+            Mat mat = Imgcodecs.imread(file.toString());
+            if (mat.empty()) {
+                throw new IllegalArgumentException("无法解码图片：" + file);
+            }
+            try {
+                for (UnaryOperator<Mat> operation : chain) {
+                    Mat next = operation.apply(mat);
+                    if (next != mat) {
+                        mat.release();
+                        mat = next;
+                    }
+                }
+                OpencvUtil.writeImage(mat, target(file));
+            } finally {
+                mat.release();
+            }
+        };
+    }
+
+    /**
+     * 单个处理操作，可以返回新的Mat，也可以直接修改并返回输入的Mat
+     */
+    private static UnaryOperator<Mat> operation(String name) {
+        switch (name) {
+            case "deskew":
+                return Deskew::deskew;
+            case "crop":
+                return RemoveBlackUtil2::removeBlackEdge;
+            case "unstamp":
+                return mat -> {
+                    Recognize.removeRed(mat, Recognize.locateRed(mat));
+                    return mat;
+                };
+            case "autogain":
+                return mat -> {
+                    Brightness.autoGain(mat);
+                    return mat;
+                };
+            case "clahe":
+                return mat -> {
+                    Brightness.clahe(mat, 2.0);
+                    return mat;
+                };
+            case "gray":
+                return ImageUtil::gray;
+            default:
+                throw new IllegalArgumentException("不支持的操作： -->" + name);
+        }
+    }
+
+    private String target(Path file) {
+        return FileUtil.file(output, file.getFileName().toString()).getPath();
+    }
+
+}
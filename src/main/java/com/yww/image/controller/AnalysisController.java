@@ -0,0 +1,251 @@
+package com.yww.image.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yww.image.service.Analysis;
+import com.yww.image.service.Deskew;
+import com.yww.image.util.EncoderProfile;
+import com.yww.image.util.FrameProtocol;
+import com.yww.image.util.ImageUtil;
+import com.yww.image.util.MatScope;
+import com.yww.image.util.OpencvUtil;
+import com.yww.image.util.PixelBudget;
+import com.yww.image.util.SingleFlight;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ *      图片分析接口
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+@RestController
+@RequestMapping("/analysis")
+public class AnalysisController {
+
+    /**
+     * 二进制批量接口单帧图片的上限，与multipart的max-file-size一致
+     */
+    private static final int MAX_FRAME_BYTES = 100 * 1024 * 1024;
+
+    /**
+     * 二进制批量接口每个连接读入但还没有写回的图片总量上限
+     */
+    private static final long MAX_INFLIGHT_BYTES = 256L * 1024 * 1024;
+
+    private final ObjectMapper objectMapper;
+
+    private final PixelBudget pixelBudget;
+
+    /**
+     * 合并同时上传的相同图片，重试和重复提交只分析一次
+     */
+    private final SingleFlight<Map<String, Object>> flight = new SingleFlight<>();
+
+    /**
+     * 合并二进制批量中相同的分析和纠偏帧
+     */
+    private final SingleFlight<byte[]> frameFlight = new SingleFlight<>();
+
+    /**
+     * 分析线程池，同时只有正在分析的图片会读入内存
+     */
+    private final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    public AnalysisController(ObjectMapper objectMapper, PixelBudget pixelBudget) {
+        this.objectMapper = objectMapper;
+        this.pixelBudget = pixelBudget;
+    }
+
+    /**
+     * 批量分析图片，每张图片分析完成后立即以一行JSON（NDJSON）返回，返回顺序为完成顺序，用index对应上传顺序
+     *
+     * @param files     图片文件
+     * @return          NDJSON流
+     */
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> batch(@RequestParam("files") List<MultipartFile> files) {
+        StreamingResponseBody body = out -> {
+            CompletionService<Map<String, Object>> completion = new ExecutorCompletionService<>(executor);
+            List<Future<Map<String, Object>>> futures = new ArrayList<>(files.size());
+            try {
+                for (int i = 0; i < files.size(); i++) {
+                    int index = i;
+                    MultipartFile file = files.get(i);
+                    futures.add(completion.submit(() -> analyze(index, file)));
+                }
+                for (int i = 0; i < files.size(); i++) {
+                    try {
+                        write(out, completion.take().get());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (ExecutionException e) {
+                        // analyze内部已经处理异常，这里不会出现
+                        throw new IllegalStateException(e.getCause());
+                    }
+                }
+            } finally {
+                // 客户端断开时写出失败，取消还没分析完的图片
+                for (Future<Map<String, Object>> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * 二进制批量处理，供内部服务使用，一个连接中连续发送多张图片，格式见 {@link FrameProtocol}
+     * 边读取请求边处理，结果按请求顺序返回，图片不经过multipart解析和临时文件
+     * 帧头为操作名，可带一个参数：analyze[;名称]、deskew[;编码配置]、gray[;编码配置]，编码配置默认jpeg-q85
+     *
+     * @param request   请求，内容为连续的请求帧
+     * @return          连续的响应帧
+     */
+    @PostMapping(value = "/frames", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> frames(HttpServletRequest request) {
+        StreamingResponseBody body = out -> FrameProtocol.process(request.getInputStream(), out, executor,
+                Runtime.getRuntime().availableProcessors() * 2, MAX_FRAME_BYTES, MAX_INFLIGHT_BYTES, this::frame);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(body);
+    }
+
+    /**
+     * 本地内存使用情况
+     * 只统计正在处理的请求中登记到作用域的Mat，缓存和没有作用域的路径占用的本地内存不计算在内
+     *
+     * @return  作用域中登记的Mat当前占用的内存和剩余预算（字节）
+     */
+    @GetMapping("/memory")
+    public Map<String, Long> memory() {
+        Map<String, Long> res = new LinkedHashMap<>();
+        res.put("scopedLiveBytes", MatScope.scopedLiveBytes());
+        res.put("availableBudget", pixelBudget.availableBytes());
+        return res;
+    }
+
+    /**
+     * 请求合并统计
+     *
+     * @return  实际分析次数、被合并的请求数和正在分析的图片数
+     */
+    @GetMapping("/coalesce")
+    public Map<String, Long> coalesce() {
+        Map<String, Long> res = new LinkedHashMap<>();
+        res.put("executed", flight.getExecuted() + frameFlight.getExecuted());
+        res.put("coalesced", flight.getCoalesced() + frameFlight.getCoalesced());
+        res.put("inFlight", (long) flight.getInFlight() + frameFlight.getInFlight());
+        return res;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 分析单张图片，出错时返回错误信息而不是中断整个批次
+     * 解码前先按图片头申请内存预算，处理过程中的Mat都在作用域内统计和释放
+     */
+    @SuppressWarnings("try")
+    private Map<String, Object> analyze(int index, MultipartFile file) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("index", index);
+        try {
+            byte[] bytes = file.getBytes();
+            String name = file.getOriginalFilename();
+            // 同名且内容相同的图片同时只分析一次，结果中带有文件名，所以文件名也作为参数
+            record.putAll(flight.execute(SingleFlight.key("analysis", bytes, name), () -> {
+                Map<String, Object> res = new LinkedHashMap<>();
+                try (PixelBudget.Permit permit = pixelBudget.admit(bytes);
+                     MatScope scope = MatScope.open(name)) {
+                    res.put("result", Analysis.analyze(name, bytes));
+                    res.put("peakBytes", scope.getPeakBytes());
+                }
+                return res;
+            }));
+        } catch (Exception e) {
+            record.put("name", file.getOriginalFilename());
+            record.put("error", e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+        return record;
+    }
+
+    /**
+     * 处理二进制批量中的一帧，分析和纠偏的帧与其他同时处理的相同帧合并
+     */
+    private byte[] frame(String header, byte[] bytes) {
+        String[] parts = header.split(";", 2);
+        String op = parts[0].trim();
+        String param = parts.length > 1 ? parts[1].trim() : null;
+        if ("analyze".equals(op) || "deskew".equals(op)) {
+            return frameFlight.execute(SingleFlight.key(op, bytes, param), () -> frame(op, param, bytes));
+        }
+        return frame(op, param, bytes);
+    }
+
+    /**
+     * 处理一帧，直接从内存解码，按图片头申请内存预算
+     */
+    @SuppressWarnings("try")
+    private byte[] frame(String op, String param, byte[] bytes) {
+        try (PixelBudget.Permit permit = pixelBudget.admit(bytes);
+             MatScope scope = MatScope.open(op)) {
+            if ("analyze".equals(op)) {
+                return objectMapper.writeValueAsBytes(Analysis.analyze(param == null ? "frame" : param, bytes));
+            }
+            EncoderProfile profile = param == null ? EncoderProfile.JPEG_Q85 : EncoderProfile.of(param);
+            MatOfByte buffer = new MatOfByte(bytes);
+            Mat mat = MatScope.register(Imgcodecs.imdecode(buffer, Imgcodecs.IMREAD_COLOR));
+            buffer.release();
+            if (mat.empty()) {
+                throw new IllegalArgumentException("无法解码图片");
+            }
+            switch (op) {
+                case "deskew":
+                    return OpencvUtil.encode(MatScope.register(Deskew.deskew(mat)), profile);
+                case "gray":
+                    return OpencvUtil.encode(MatScope.register(ImageUtil.gray(mat)), profile);
+                default:
+                    throw new IllegalArgumentException("不支持的操作： -->" + op);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("处理图片出错！", e);
+        }
+    }
+
+    private void write(OutputStream out, Map<String, Object> record) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(record));
+        out.write('\n');
+        out.flush();
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.yww.image.controller;
+
+import com.yww.image.service.PyramidCache;
+import com.yww.image.util.EncoderProfile;
+import com.yww.image.util.OpencvUtil;
+import com.yww.image.util.PixelBudget;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * <p>
+ *      图片预览接口，用于审核页面的缩放和裁剪
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+@RestController
+@RequestMapping("/preview")
+public class PreviewController {
+
+    private final Path root;
+
+    private final PyramidCache cache;
+
+    public PreviewController(@Value("${image.preview.root}") String root,
+                             @Value("${image.preview.pyramid-bytes:1073741824}") long pyramidBytes,
+                             @Value("${image.preview.original-bytes:536870912}") long originalBytes,
+                             PixelBudget pixelBudget) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.cache = new PyramidCache(pyramidBytes, originalBytes, pixelBudget);
+    }
+
+    /**
+     * 获取图片指定区域的缩放结果
+     *
+     * @param path  相对预览根目录的图片路径
+     * @param x     区域左上角横坐标（原图坐标）
+     * @param y     区域左上角纵坐标（原图坐标）
+     * @param w     区域宽度，不传表示整张图片
+     * @param h     区域高度，不传表示整张图片
+     * @param zoom  相对原图的缩放比例，大于1时按1处理
+     * @return      JPEG图片
+     */
+    @GetMapping(produces = MediaType.IMAGE_JPEG_VALUE)
+    public ResponseEntity<byte[]> preview(@RequestParam("path") String path,
+                                          @RequestParam(value = "x", defaultValue = "0") int x,
+                                          @RequestParam(value = "y", defaultValue = "0") int y,
+                                          @RequestParam(value = "w", required = false) Integer w,
+                                          @RequestParam(value = "h", required = false) Integer h,
+                                          @RequestParam(value = "zoom", defaultValue = "1") double zoom) {
+        // 只允许访问预览根目录下的文件
+        Path file = root.resolve(path).normalize();
+        if (!file.startsWith(root) || !file.toFile().isFile()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        Rect region = w == null || h == null ? null : new Rect(x, y, w, h);
+        Mat mat;
+        try {
+            mat = cache.view(file.toString(), region, zoom);
+        } catch (PixelBudget.BudgetExceededException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .body(OpencvUtil.encode(mat, EncoderProfile.JPEG_Q85));
+        } finally {
+            mat.release();
+        }
+    }
+
+    @PreDestroy
+    public void clear() {
+        cache.clear();
+    }
+
+}
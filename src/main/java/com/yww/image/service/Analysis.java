@@ -0,0 +1,149 @@
+package com.yww.image.service;
+
+import com.yww.image.util.DecodePolicy;
+import com.yww.image.util.MatScope;
+import com.yww.image.util.Pipeline;
+import com.yww.image.util.SkewEstimator;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * <p>
+ *      图片综合分析
+ *      一次解码后计算分辨率、倾斜角、清晰度、亮度和红章检测结果，灰度图在同一次 {@link Pipeline} 运行中只转换一次
+ *      分配的Mat都登记到当前的 {@link MatScope}，用于统计本地内存
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class Analysis {
+
+    /**
+     * 分析图片
+     *
+     * @param name      图片名称
+     * @param bytes     图片文件内容
+     * @return          分析结果
+     */
+    public static Result analyze(String name, byte[] bytes) {
+        MatOfByte buffer = new MatOfByte(bytes);
+        Mat mat = MatScope.register(Imgcodecs.imdecode(buffer, Imgcodecs.IMREAD_COLOR));
+        buffer.release();
+        if (mat.empty()) {
+            throw new IllegalArgumentException("无法解码图片：" + name);
+        }
+        try {
+            return analyze(name, mat);
+        } finally {
+            mat.release();
+        }
+    }
+
+    /**
+     * 分析图片
+     *
+     * @param name      图片名称
+     * @param mat       图片矩阵（BGR）
+     * @return          分析结果
+     */
+    public static Result analyze(String name, Mat mat) {
+        Result res = new Result(name);
+        res.width = mat.width();
+        res.height = mat.height();
+
+        // 灰度图只计算一次，同时用于亮度、清晰度和缩小后的倾斜角检测
+        int deskewFactor = DecodePolicy.of(DecodePolicy.Operation.DESKEW).getFactor();
+        Pipeline.Node gray = Pipeline.source().gray();
+        Pipeline.Node lines = Deskew.skewLines(gray.shrink(deskewFactor), deskewFactor);
+        try (Pipeline.Result steps = Pipeline.run(mat, gray, lines)) {
+            Mat grayMat = steps.get(gray);
+            res.brightness = Core.mean(grayMat).val[0];
+            res.clarity = Clarity.sharpness(grayMat).getLaplacianVariance();
+            SkewEstimator.Result skew = SkewEstimator.hough(steps.get(lines));
+            res.angle = skew.getAngle();
+            res.angleConfidence = skew.getConfidence();
+        }
+
+        int redFactor = DecodePolicy.of(DecodePolicy.Operation.RED).getFactor();
+        Mat smallColor = MatScope.register(shrink(mat, redFactor));
+        res.red = Recognize.recognizeRed(smallColor, redFactor);
+        smallColor.release();
+        return res;
+    }
+
+    private static Mat shrink(Mat mat, int factor) {
+        if (factor <= 1) {
+            return mat.clone();
+        }
+        Mat res = new Mat();
+        Imgproc.resize(mat, res, new Size(), 1.0 / factor, 1.0 / factor, Imgproc.INTER_AREA);
+        return res;
+    }
+
+    /**
+     * 分析结果
+     */
+    public static class Result {
+
+        private final String name;
+
+        private int width;
+
+        private int height;
+
+        private double angle;
+
+        private double angleConfidence;
+
+        private double clarity;
+
+        private double brightness;
+
+        private boolean red;
+
+        public Result(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public double getAngle() {
+            return angle;
+        }
+
+        public double getAngleConfidence() {
+            return angleConfidence;
+        }
+
+        /**
+         * Laplacian方差表示的清晰度
+         */
+        public double getClarity() {
+            return clarity;
+        }
+
+        public double getBrightness() {
+            return brightness;
+        }
+
+        public boolean isRed() {
+            return red;
+        }
+    }
+
+}
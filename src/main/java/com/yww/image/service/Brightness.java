@@ -1,11 +1,24 @@
 package com.yww.image.service;
 
+import com.yww.image.util.DecodePolicy;
 import com.yww.image.util.ImageUtil;
 import com.yww.image.util.OpencvUtil;
+import com.yww.image.util.PixelKernels;
 import org.opencv.core.Core;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Scalar;
+import org.opencv.core.Size;
 import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.CLAHE;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * <p>
@@ -17,6 +30,32 @@ import org.opencv.imgcodecs.Imgcodecs;
  */
 public class Brightness {
 
+    /**
+     * 查找表参数的量化倍数，参数精确到0.01
+     */
+    private static final double LUT_SCALE = 100.0;
+
+    /**
+     * 每种查找表最多缓存的数量，超出时淘汰最久未使用的
+     */
+    private static final int MAX_LUTS = 64;
+
+    /**
+     * 增益上限，增益达到255时所有非0像素都变为255，更大的增益结果相同
+     */
+    private static final double MAX_GAIN = 255;
+
+    /**
+     * 增益查找表缓存，key为量化后的增益，按访问顺序排列
+     * 只缓存Java数组，淘汰时不会释放其他线程正在使用的本地内存
+     */
+    private static final Map<Integer, byte[]> GAIN_LUTS = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 伽马查找表缓存，key为量化后的伽马值，按访问顺序排列
+     */
+    private static final Map<Integer, byte[]> GAMMA_LUTS = new LinkedHashMap<>(16, 0.75f, true);
+
     /**
      * 计算图片平均亮度
      * mean 获取Mat中各个通道的均值
@@ -25,7 +64,19 @@ public class Brightness {
      * @return          图片平均亮度值
      */
     public static double brightness(String filePath) {
-        Mat grayImage = Imgcodecs.imread(filePath, Imgcodecs.IMREAD_GRAYSCALE);
+        return brightness(filePath, DecodePolicy.of(DecodePolicy.Operation.BRIGHTNESS));
+    }
+
+    /**
+     * 计算图片平均亮度
+     * 平均亮度与分辨率基本无关，可以缩小读取
+     *
+     * @param filePath  图片路径
+     * @param policy    解码策略
+     * @return          图片平均亮度值
+     */
+    public static double brightness(String filePath, DecodePolicy policy) {
+        Mat grayImage = policy.readGray(filePath);
         // 计算图像的平均亮度
         Scalar mean = Core.mean(grayImage);
         grayImage.release();
@@ -45,27 +96,28 @@ public class Brightness {
         // 灰度化，转为灰度图
         Mat gray = ImageUtil.gray(src.clone());
 
-        double a = 0;
+        // 一次拷贝出全部像素，在数组上统计
+        int total = gray.rows() * gray.cols();
+        byte[] data = new byte[total];
+        gray.get(0, 0, data);
+        src.release();
+        gray.release();
         int[] hist = new int[256];
-        for (int i = 0; i < gray.rows(); i++) {
-            for (int j = 0; j < gray.cols(); j++) {
-                a += gray.get(i, j)[0] - 128;
-                int index = (int) gray.get(i, j)[0];
-                hist[index]++;
-            }
-        }
-        double da = a / (gray.rows() * gray.cols());
+        PixelKernels.histogram(data, 0, total, hist);
+        double a = PixelKernels.sum(data, 0, total) - 128.0 * total;
+        double da = a / total;
         double ma = 0;
         for (int i = 0; i < hist.length; i++) {
             ma += Math.abs(i - 128 - da) * hist[i];
         }
-        ma = ma / (gray.rows() * gray.cols());
+        ma = ma / total;
         double cast = Math.abs(da) / Math.abs(ma);
         return new double[] {cast, da};
     }
 
     /**
      * 图片亮度调整
+     * 保留彩色，使用查找表对所有通道做增益
      *
      * @param src   输入路径
      * @param dst   输出路径
@@ -73,22 +125,126 @@ public class Brightness {
     public void adjustBrightness(String src, String dst) {
         // 读取图片
         Mat mat = Imgcodecs.imread(src);
-        // 灰度化，转为灰度图
-        Mat gray = ImageUtil.gray(mat.clone());
+        autoGain(mat);
+        // 保存调整后的图像
+        OpencvUtil.writeImage(mat, dst);
+        mat.release();
+    }
+
+    /**
+     * 亮度异常时自动调整亮度，直接修改传入的Mat
+     *
+     * @param mat   图片矩阵
+     * @return      使用的增益，亮度正常时为1
+     */
+    public static double autoGain(Mat mat) {
         // 获取图片平均亮度值
-        Scalar mean = Core.mean(gray);
-        double brightness = mean.val[0];
+        Mat gray = ImageUtil.gray(mat);
+        double brightness = Core.mean(gray).val[0];
+        gray.release();
 
         // 图片亮度判断，需要根据具体情况进行判断
-        Mat adjustedImage = mat.clone();
-        if (brightness < 100 || brightness > 250) {
+        if (brightness > 0 && (brightness < 100 || brightness > 250)) {
             // 计算亮度调整值，可以根据具体情况选择参数调整
             double alpha = 175 / brightness;
-            // 执行亮度调整
-            gray.convertTo(adjustedImage, -1, alpha, 0);
+            gain(mat, alpha);
+            return alpha;
         }
-        // 保存调整后的图像
-        Imgcodecs.imwrite(dst, adjustedImage);
+        return 1;
+    }
+
+    /**
+     * 线性增益，out = in * gain，直接修改传入的Mat
+     *
+     * @param mat   图片矩阵（8位，任意通道数）
+     * @param gain  增益，按0.01量化，截断到[0, 255]
+     */
+    public static void gain(Mat mat, double gain) {
+        int key = (int) Math.round(Math.max(0, Math.min(MAX_GAIN, gain)) * LUT_SCALE);
+        applyLut(mat, table(GAIN_LUTS, key, i -> i * key / LUT_SCALE));
+    }
+
+    /**
+     * 伽马校正，out = 255 * (in / 255) ^ (1 / gamma)，gamma大于1变亮，直接修改传入的Mat
+     *
+     * @param mat   图片矩阵（8位，任意通道数）
+     * @param gamma 伽马值，按0.01量化
+     */
+    public static void gamma(Mat mat, double gamma) {
+        int key = (int) Math.round(gamma * LUT_SCALE);
+        if (key <= 0) {
+            throw new IllegalArgumentException("伽马值必须大于0");
+        }
+        applyLut(mat, table(GAMMA_LUTS, key, i -> 255 * Math.pow(i / 255.0, LUT_SCALE / key)));
+    }
+
+    /**
+     * 限制对比度的自适应直方图均衡（CLAHE），彩色图只处理Lab的L通道，直接修改传入的Mat
+     *
+     * @param mat       图片矩阵（8位灰度图或BGR）
+     * @param clipLimit 对比度限制，常用2.0
+     */
+    public static void clahe(Mat mat, double clipLimit) {
+        CLAHE clahe = Imgproc.createCLAHE(clipLimit, new Size(8, 8));
+        if (mat.channels() == 1) {
+            clahe.apply(mat, mat);
+            return;
+        }
+        Mat lab = new Mat();
+        Imgproc.cvtColor(mat, lab, Imgproc.COLOR_BGR2Lab);
+        List<Mat> channels = new ArrayList<>();
+        Core.split(lab, channels);
+        clahe.apply(channels.get(0), channels.get(0));
+        Core.merge(channels, lab);
+        Imgproc.cvtColor(lab, mat, Imgproc.COLOR_Lab2BGR);
+        lab.release();
+        for (Mat channel : channels) {
+            channel.release();
+        }
+    }
+
+    /**
+     * 从缓存中取查找表，没有时生成并放入缓存，超出数量时淘汰最久未使用的
+     */
+    private static byte[] table(Map<Integer, byte[]> cache, int key, DoubleUnaryOperator function) {
+        synchronized (cache) {
+            byte[] table = cache.get(key);
+            if (table != null) {
+                return table;
+            }
+        }
+        byte[] table = buildTable(function);
+        synchronized (cache) {
+            cache.put(key, table);
+            Iterator<Integer> eldest = cache.keySet().iterator();
+            while (cache.size() > MAX_LUTS) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 生成256项的查找表，结果截断到[0, 255]
+     */
+    private static byte[] buildTable(DoubleUnaryOperator function) {
+        byte[] table = new byte[256];
+        for (int i = 0; i < table.length; i++) {
+            long value = Math.round(function.applyAsDouble(i));
+            table[i] = (byte) Math.max(0, Math.min(255, value));
+        }
+        return table;
+    }
+
+    /**
+     * 按查找表转换像素，查找表的Mat只有256字节，每次调用创建并释放
+     */
+    private static void applyLut(Mat mat, byte[] table) {
+        Mat lut = new Mat(1, 256, CvType.CV_8UC1);
+        lut.put(0, 0, table);
+        Core.LUT(mat, lut, mat);
+        lut.release();
     }
 
 }
@@ -1,11 +1,15 @@
 package com.yww.image.service;
 
+import com.yww.image.util.DecodePolicy;
+import com.yww.image.util.ImageUtil;
+import com.yww.image.util.MatScope;
 import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
 
 /**
  * <p>
  *      网上传的三种清晰度计算方式
+ *      以及一次遍历同时计算多种清晰度指标的方法 {@link #sharpness(Mat)}
  * </P>
  *
  * @author yww
@@ -91,4 +95,151 @@ public class Clarity {
         return meanValue;
     }
 
+    /**
+     * 清晰度预检，按解码策略读取灰度图后计算清晰度指标
+     * 注意清晰度与分辨率相关，判断阈值需要在相同的解码策略下标定
+     *
+     * @param filePath  图片路径
+     * @return          清晰度指标
+     */
+    public static Score sharpness(String filePath) {
+        Mat gray = DecodePolicy.of(DecodePolicy.Operation.CLARITY).readGray(filePath);
+        Score score = sharpness(gray);
+        gray.release();
+        return score;
+    }
+
+    /**
+     * 一次遍历同时计算多种清晰度指标
+     * 只做一次灰度化，按行读取灰度数据，使用三行滑动窗口计算3x3的Sobel和Laplacian，
+     * 用累加器统计结果，不会生成整幅的梯度图像，也不会出现CV_16U截断负值的问题。
+     *
+     * @param image  图片矩阵
+     * @return      清晰度指标
+     */
+    public static Score sharpness(Mat image) {
+        // 单通道图片直接按行读取，不复制整幅图像
+        boolean owned = image.channels() != 1;
+        Mat gray = owned ? MatScope.register(ImageUtil.gray(image)) : image;
+        int rows = gray.rows();
+        int cols = gray.cols();
+        if (rows < 3 || cols < 3) {
+            if (owned) {
+                gray.release();
+            }
+            return new Score(0, 0, 0, 0);
+        }
+
+        // 三行滑动窗口
+        byte[] prev = new byte[cols];
+        byte[] curr = new byte[cols];
+        byte[] next = new byte[cols];
+        gray.get(0, 0, prev);
+        gray.get(1, 0, curr);
+
+        long tenengrad = 0;
+        long lapSum = 0;
+        long lapSquare = 0;
+        long brenner = 0;
+        long energy = 0;
+        for (int row = 1; row < rows - 1; row++) {
+            gray.get(row + 1, 0, next);
+            for (int col = 1; col < cols - 1; col++) {
+                int tl = prev[col - 1] & 0xff, t = prev[col] & 0xff, tr = prev[col + 1] & 0xff;
+                int l = curr[col - 1] & 0xff, c = curr[col] & 0xff, r = curr[col + 1] & 0xff;
+                int bl = next[col - 1] & 0xff, b = next[col] & 0xff, br = next[col + 1] & 0xff;
+
+                // Sobel水平和垂直方向的梯度，Tenengrad = Gx² + Gy²
+                int gx = (tr + 2 * r + br) - (tl + 2 * l + bl);
+                int gy = (bl + 2 * b + br) - (tl + 2 * t + tr);
+                tenengrad += (long) gx * gx + (long) gy * gy;
+
+                // 四邻域Laplacian，与Imgproc.Laplacian的ksize=1一致
+                int lap = t + b + l + r - 4 * c;
+                lapSum += lap;
+                lapSquare += (long) lap * lap;
+
+                // 能量梯度，相邻像素的一阶差分
+                int dx = r - c;
+                int dy = b - c;
+                energy += dx * dx + dy * dy;
+
+                // Brenner梯度，间隔两个像素的差分
+                if (col + 2 < cols) {
+                    int d = (curr[col + 2] & 0xff) - c;
+                    brenner += d * d;
+                }
+            }
+            byte[] temp = prev;
+            prev = curr;
+            curr = next;
+            next = temp;
+        }
+        if (owned) {
+            gray.release();
+        }
+
+        double count = (double) (rows - 2) * (cols - 2);
+        double lapMean = lapSum / count;
+        return new Score(tenengrad / count,
+                lapSquare / count - lapMean * lapMean,
+                brenner / count,
+                energy / count);
+    }
+
+    /**
+     * 清晰度指标，数值都是按像素平均后的结果，同一场景下数值越大图像越清晰
+     */
+    public static class Score {
+
+        /**
+         * Tenengrad梯度，Sobel梯度平方和的均值
+         */
+        private final double tenengrad;
+
+        /**
+         * Laplacian响应的方差
+         */
+        private final double laplacianVariance;
+
+        /**
+         * Brenner梯度
+         */
+        private final double brenner;
+
+        /**
+         * 能量梯度
+         */
+        private final double energy;
+
+        public Score(double tenengrad, double laplacianVariance, double brenner, double energy) {
+            this.tenengrad = tenengrad;
+            this.laplacianVariance = laplacianVariance;
+            this.brenner = brenner;
+            this.energy = energy;
+        }
+
+        public double getTenengrad() {
+            return tenengrad;
+        }
+
+        public double getLaplacianVariance() {
+            return laplacianVariance;
+        }
+
+        public double getBrenner() {
+            return brenner;
+        }
+
+        public double getEnergy() {
+            return energy;
+        }
+
+        @Override
+        public String toString() {
+            return "Score{tenengrad=" + tenengrad + ", laplacianVariance=" + laplacianVariance
+                    + ", brenner=" + brenner + ", energy=" + energy + "}";
+        }
+    }
+
 }
@@ -0,0 +1,132 @@
+package com.yww.image.service;
+
+import com.yww.image.util.DecodePolicy;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ *      解码策略标定
+ *      对同一张图片分别用原图和缩小解码执行各个分析操作，对比结果偏差和耗时，用于选择每个操作的解码策略
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class DecodeCalibration {
+
+    /**
+     * 对图片执行所有操作和所有解码策略的对比
+     *
+     * @param filePath  图片路径
+     * @return          对比结果，每个操作和解码策略一条
+     */
+    public static List<Result> calibrate(String filePath) {
+        List<Result> res = new ArrayList<>();
+        for (DecodePolicy.Operation operation : DecodePolicy.Operation.values()) {
+            double full = 0;
+            for (DecodePolicy policy : DecodePolicy.values()) {
+                long start = System.nanoTime();
+                double value = measure(operation, policy, filePath);
+                long cost = System.nanoTime() - start;
+                if (policy == DecodePolicy.FULL) {
+                    full = value;
+                }
+                res.add(new Result(operation, policy, value, value - full, cost / 1_000_000.0));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * 在指定解码策略下执行分析操作
+     *
+     * @param operation 分析操作
+     * @param policy    解码策略
+     * @param filePath  图片路径
+     * @return          分析结果，红章检测返回红色像素是否超过阈值（1或0）
+     */
+    private static double measure(DecodePolicy.Operation operation, DecodePolicy policy, String filePath) {
+        switch (operation) {
+            case DESKEW: {
+                Mat mat = policy.readGray(filePath);
+                double angle = Deskew.getDeskewAngle(mat, policy.getFactor());
+                mat.release();
+                return angle;
+            }
+            case BRIGHTNESS:
+                return Brightness.brightness(filePath, policy);
+            case RED:
+                return Recognize.recognizeRed(filePath, policy) ? 1 : 0;
+            case CLARITY: {
+                Mat mat = policy.readGray(filePath);
+                double clarity = Clarity.sharpness(mat).getLaplacianVariance();
+                mat.release();
+                return clarity;
+            }
+            default:
+                throw new UnsupportedOperationException("不支持的操作： -->" + operation);
+        }
+    }
+
+    /**
+     * 标定结果
+     */
+    public static class Result {
+
+        private final DecodePolicy.Operation operation;
+
+        private final DecodePolicy policy;
+
+        /**
+         * 分析结果
+         */
+        private final double value;
+
+        /**
+         * 与原图结果的偏差
+         */
+        private final double error;
+
+        /**
+         * 耗时（毫秒），包括解码
+         */
+        private final double millis;
+
+        public Result(DecodePolicy.Operation operation, DecodePolicy policy, double value, double error, double millis) {
+            this.operation = operation;
+            this.policy = policy;
+            this.value = value;
+            this.error = error;
+            this.millis = millis;
+        }
+
+        public DecodePolicy.Operation getOperation() {
+            return operation;
+        }
+
+        public DecodePolicy getPolicy() {
+            return policy;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public double getError() {
+            return error;
+        }
+
+        public double getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return operation + "/" + policy + ": value=" + value + ", error=" + error + ", millis=" + millis;
+        }
+    }
+
+}
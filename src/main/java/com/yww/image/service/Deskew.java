@@ -1,24 +1,20 @@
 package com.yww.image.service;
 
-import cn.hutool.core.convert.Convert;
 import cn.hutool.core.io.FileUtil;
+import com.yww.image.util.DecodePolicy;
 import com.yww.image.util.ImageDeskew;
 import com.yww.image.util.ImageUtil;
 import com.yww.image.util.OpencvUtil;
+import com.yww.image.util.Pipeline;
+import com.yww.image.util.SkewEstimator;
 import org.opencv.core.Mat;
-import org.opencv.core.Size;
-import org.opencv.imgcodecs.Imgcodecs;
-import org.opencv.imgproc.Imgproc;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * <p>
@@ -40,11 +36,25 @@ public class Deskew {
      * @param dst   纠偏图片保存路径
      */
     public static void deskew(String src, String dst) {
-        Mat mat = Imgcodecs.imread(src);
+        // 倾斜角与分辨率无关，按解码策略读取缩小后的灰度图
+        DecodePolicy policy = DecodePolicy.of(DecodePolicy.Operation.DESKEW);
+        Mat mat = policy.readGray(src);
         // 计算图片倾斜角
-        double angle = getDeskewAngle(mat);
-        // 图片旋转
-        ImageUtil.rotateImage(src, dst, angle);
+        double angle = getDeskewAngle(mat, policy.getFactor());
+        mat.release();
+        // 图片旋转，倾斜角为正表示文字行向右下倾斜，需要逆时针转回
+        ImageUtil.rotateImage(src, dst, -angle);
+    }
+
+    /**
+     * 图片进行纠偏
+     *
+     * @param src   图片
+     * @return      纠偏后的图片
+     */
+    public static Mat deskew(Mat src) {
+        double angle = getDeskewAngle(src);
+        return ImageUtil.rotate(src, -angle);
     }
 
     /**
@@ -53,62 +63,70 @@ public class Deskew {
      * @param src       图片
      * @return          倾斜角度
      */
-    public static Integer getDeskewAngle(Mat src) {
-        // 图片灰度化
-        Mat gray = src.clone();
-        Imgproc.cvtColor(src, gray, Imgproc.COLOR_BGR2GRAY);
-
-//        // 高斯模糊（？）
-//        @Cleanup
-//        UMat blur = gray.clone();
-//        GaussianBlur(gray, blur, new Size(9, 9), 0);
-//        // 二值化（？）
-//        @Cleanup
-//        UMat thresh = blur.clone();
-//        threshold(blur, thresh, 0, 255, THRESH_BINARY_INV + THRESH_OTSU);
-
-        Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(5, 5));
+    public static double getDeskewAngle(Mat src) {
+        return getDeskewAngle(src, 1);
+    }
 
-        // 图片膨胀
-        Mat erode = gray.clone();
-        Imgproc.erode(gray, erode, kernel);
+    /**
+     *  通过霍夫变换后，获取直线并计算出整体的倾斜角度
+     *  图片是缩小读取时，与尺寸相关的参数按缩小倍数换算
+     *
+     * @param src       图片
+     * @param factor    图片相对原图的缩小倍数
+     * @return          倾斜角度
+     */
+    public static double getDeskewAngle(Mat src, int factor) {
+        return estimateSkew(src, factor).getAngle();
+    }
 
-        // 图片腐蚀
-        Mat dilate = erode.clone();
-        Imgproc.dilate(erode, dilate, kernel);
+    /**
+     *  投影法计算倾斜角度，适合没有明显直线的纯文字文档
+     *
+     * @param src       图片
+     * @return          倾斜角度和置信度
+     */
+    public static SkewEstimator.Result estimateSkewByProjection(Mat src) {
+        Mat gray = ImageUtil.gray(src);
+        SkewEstimator.Result res = SkewEstimator.projection(gray, 20);
+        gray.release();
+        return res;
+    }
 
-        // 边缘检测
-        Mat canny = dilate.clone();
-        Imgproc.Canny(dilate, canny, 50, 150);
+    /**
+     *  通过霍夫变换后，获取直线并按线段长度投票计算倾斜角度
+     *
+     * @param src       图片
+     * @param factor    图片相对原图的缩小倍数
+     * @return          倾斜角度和置信度
+     */
+    public static SkewEstimator.Result estimateSkew(Mat src, int factor) {
+        Pipeline.Node lines = skewLines(Pipeline.source().gray(), factor);
+        try (Pipeline.Result res = Pipeline.run(src, lines)) {
+            // 按线段长度投票计算倾斜角度
+            return SkewEstimator.hough(res.get(lines));
+        }
+    }
 
-        // 霍夫变换得到线条
-        Mat lines = new Mat();
+    /**
+     *  倾斜角检测的算子：腐蚀、膨胀、边缘检测，霍夫变换通过步长为1，角度为PI/180来搜索可能的直线
+     *  参数按缩小倍数调整，可以接在其他算子图的灰度图后面，与其他计算共用灰度图
+     *
+     * @param gray      灰度图节点
+     * @param factor    图片相对原图的缩小倍数
+     * @return          霍夫变换的线段节点
+     */
+    static Pipeline.Node skewLines(Pipeline.Node gray, int factor) {
+        int kernelSize = Math.max(1, (int) Math.round(5.0 / factor));
         //累加器阈值参数，小于设置值不返回
-        int threshold = 90;
+        int threshold = Math.max(10, 90 / factor);
         //最低线段长度，低于设置值则不返回
-        double minLineLength = 100;
+        double minLineLength = 100.0 / factor;
         //间距小于该值的线当成同一条线
-        double maxLineGap = 10;
-        // 霍夫变换，通过步长为1，角度为PI/180来搜索可能的直线
-        Imgproc.HoughLinesP(canny, lines, 1, Math.PI / 180, threshold, minLineLength, maxLineGap);
-        // 计算倾斜角度
-        List<Integer> angelList = new ArrayList<>();
-        for (int i = 0; i < lines.rows(); i++) {
-            double[] line = lines.get(i, 0);
-            int k = calculateAngle(line[0], line[1], line[2], line[3]);
-            angelList.add(k);
-        }
-        if (angelList.isEmpty()) {
-            return 0;
-        }
-        gray.release();
-        kernel.release();
-        erode.release();
-        dilate.release();
-        canny.release();
-        lines.release();
-        // 可能还得需要考虑方差来决定选择平均数还是众数
-        return most(angelList);
+        double maxLineGap = Math.max(2.0, 10.0 / factor);
+        return gray.erode(kernelSize)
+                .dilate(kernelSize)
+                .canny(50, 150)
+                .houghLinesP(1, Math.PI / 180, threshold, minLineLength, maxLineGap);
     }
 
     /**
@@ -147,53 +165,4 @@ public class Deskew {
         return bigDecimal.setScale(1, RoundingMode.HALF_UP).doubleValue();
     }
 
-    /**
-     * 求数组众数
-     *
-     * @param angelList 数组
-     * @return          数组众数
-     */
-    private static int most(List<Integer> angelList) {
-        if (angelList.isEmpty()) {
-            return 0;
-        }
-        int res = 0;
-        int max = Integer.MIN_VALUE;
-        Map<Integer, Integer> map = new HashMap<>();
-        for (int i : angelList) {
-            map.put(i, map.getOrDefault(i, 0) + 1);
-        }
-        for (Integer i : map.keySet()) {
-            int count = map.get(i);
-            if (count > max) {
-                max = count;
-                res = i;
-            }
-        }
-        return res;
-    }
-
-    /**
-     * 计算直线的倾斜角
-     *
-     * @param x1    点1的横坐标
-     * @param x2    点2的横坐标
-     * @param y1    点1的纵坐标
-     * @param y2    点2的纵坐标
-     * @return 直角的倾斜度
-     */
-    private static int calculateAngle(double x1, double y1, double x2, double y2) {
-        double dx = x2 - x1;
-        double dy = y2 - y1;
-        if (Math.abs(dx) < 1e-4) {
-            return 90;
-        } else if (Math.abs(dy) < 1e-4) {
-            return 0;
-        } else {
-            double radians = Math.atan2(dy, dx);
-            double degrees = Math.toDegrees(radians);
-            return Convert.toInt(Math.round(degrees));
-        }
-    }
-
 }
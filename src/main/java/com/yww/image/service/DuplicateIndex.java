@@ -0,0 +1,332 @@
+package com.yww.image.service;
+
+import cn.hutool.core.io.FileUtil;
+import com.yww.image.util.PerceptualHash;
+import org.opencv.core.Mat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>
+ *      近似重复图片索引
+ *      使用多索引哈希保存图片的感知哈希，按汉明距离查询时只需访问少量的桶，
+ *      每次新增都会追加写入本地文件，重启时重新加载
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class DuplicateIndex implements Closeable {
+
+    /**
+     * 默认认为是重复图片的最大汉明距离
+     */
+    public static final int DEFAULT_DISTANCE = 6;
+
+    /**
+     * 哈希分段数，每段16位
+     */
+    private static final int SEGMENTS = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final DataOutputStream out;
+
+    /**
+     * 每段一张表，表中每个桶保存该段取值相同的图片编号
+     */
+    private final int[][][] tables = new int[SEGMENTS][1 << 16][];
+
+    private final int[][] counts = new int[SEGMENTS][1 << 16];
+
+    private long[] hashes = new long[0];
+
+    private String[] keys = new String[0];
+
+    private int size;
+
+    /**
+     * 打开索引，文件不存在时会自动创建
+     *
+     * @param filePath  索引文件路径
+     */
+    public DuplicateIndex(String filePath) {
+        File file = FileUtil.touch(filePath);
+        try {
+            load(file);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        } catch (IOException e) {
+            throw new RuntimeException("加载重复图片索引出错！", e);
+        }
+    }
+
+    /**
+     * 计算图片哈希并加入索引
+     *
+     * @param mat   图像矩阵
+     * @param key   图片标识，例如之前处理结果的位置
+     * @return      图片哈希
+     */
+    public long add(Mat mat, String key) {
+        long hash = PerceptualHash.dHash(mat);
+        add(hash, key);
+        return hash;
+    }
+
+    /**
+     * 加入索引并持久化
+     *
+     * @param hash  图片哈希
+     * @param key   图片标识
+     */
+    public void add(long hash, String key) {
+        lock.writeLock().lock();
+        try {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            out.writeLong(hash);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.flush();
+            insert(hash, key);
+        } catch (IOException e) {
+            throw new RuntimeException("写入重复图片索引出错！", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找最相似的图片
+     *
+     * @param mat   图像矩阵
+     * @return      最相似的图片，没有距离在 {@code DEFAULT_DISTANCE} 以内的返回null
+     */
+    public Match nearest(Mat mat) {
+        return nearest(PerceptualHash.dHash(mat), DEFAULT_DISTANCE);
+    }
+
+    /**
+     * 查找最相似的图片
+     *
+     * @param hash          图片哈希
+     * @param maxDistance   最大汉明距离
+     * @return              最相似的图片，没有返回null
+     */
+    public Match nearest(long hash, int maxDistance) {
+        Match best = null;
+        for (Match match : search(hash, maxDistance)) {
+            if (best == null || match.getDistance() < best.getDistance()) {
+                best = match;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 查找汉明距离在范围内的所有图片
+     * 把64位哈希分成4段16位，距离不超过maxDistance的哈希至少有一段的距离不超过maxDistance / 4，
+     * 所以只需要在每段的表中枚举这个距离内的桶，再对候选图片计算完整距离
+     *
+     * @param hash          图片哈希
+     * @param maxDistance   最大汉明距离
+     * @return              匹配结果
+     */
+    public List<Match> search(long hash, int maxDistance) {
+        List<Match> res = new ArrayList<>();
+        int subDistance = maxDistance / SEGMENTS;
+        lock.readLock().lock();
+        try {
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                int value = segment(hash, segment);
+                List<Integer> buckets = new ArrayList<>();
+                neighbours(value, subDistance, 0, buckets);
+                for (int bucket : buckets) {
+                    int[] ids = tables[segment][bucket];
+                    int count = counts[segment][bucket];
+                    for (int i = 0; i < count; i++) {
+                        int id = ids[i];
+                        if (foundBefore(hash, hashes[id], segment, subDistance)) {
+                            continue;
+                        }
+                        int d = PerceptualHash.distance(hash, hashes[id]);
+                        if (d <= maxDistance) {
+                            res.add(new Match(keys[id], hashes[id], d));
+                        }
+                    }
+                }
+            }
+            return res;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 索引中的图片数量
+     *
+     * @return  数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            out.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 加载索引文件，末尾写了一半的记录会被截掉
+     *
+     * @param file  索引文件
+     */
+    private void load(File file) throws IOException {
+        long valid = 0;
+        long total = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                long hash = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || length > total - valid - 12) {
+                    // 长度损坏，按写了一半的记录处理
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                insert(hash, new String(bytes, StandardCharsets.UTF_8));
+                valid += 12 + length;
+            }
+        } catch (EOFException e) {
+            // 读取到文件末尾
+        }
+        if (valid < total) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            }
+        }
+    }
+
+    /**
+     * 插入索引
+     *
+     * @param hash  图片哈希
+     * @param key   图片标识
+     */
+    private void insert(long hash, String key) {
+        if (size == hashes.length) {
+            int capacity = Math.max(1024, size * 2);
+            hashes = Arrays.copyOf(hashes, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+        int id = size++;
+        hashes[id] = hash;
+        keys[id] = key;
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            int bucket = segment(hash, segment);
+            int[] ids = tables[segment][bucket];
+            int count = counts[segment][bucket];
+            if (ids == null) {
+                ids = new int[2];
+            } else if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count] = id;
+            tables[segment][bucket] = ids;
+            counts[segment][bucket] = count + 1;
+        }
+    }
+
+    /**
+     * 候选图片是否已经在前面的分段中被查到过，用于去重
+     */
+    private static boolean foundBefore(long hash, long candidate, int segment, int subDistance) {
+        for (int i = 0; i < segment; i++) {
+            if (Integer.bitCount(segment(hash, i) ^ segment(candidate, i)) <= subDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 枚举与value汉明距离不超过distance的所有16位值
+     */
+    private static void neighbours(int value, int distance, int fromBit, List<Integer> res) {
+        res.add(value);
+        if (distance == 0) {
+            return;
+        }
+        for (int bit = fromBit; bit < 16; bit++) {
+            neighbours(value ^ (1 << bit), distance - 1, bit + 1, res);
+        }
+    }
+
+    /**
+     * 取哈希的第segment段16位
+     */
+    private static int segment(long hash, int segment) {
+        return (int) (hash >>> (segment * 16)) & 0xffff;
+    }
+
+    /**
+     * 查询结果
+     */
+    public static class Match {
+
+        private final String key;
+
+        private final long hash;
+
+        private final int distance;
+
+        public Match(String key, long hash, int distance) {
+            this.key = key;
+            this.hash = hash;
+            this.distance = distance;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        @Override
+        public String toString() {
+            return "Match{key=" + key + ", hash=" + Long.toHexString(hash) + ", distance=" + distance + "}";
+        }
+    }
+
+}
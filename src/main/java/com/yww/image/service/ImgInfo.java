@@ -7,6 +7,7 @@ import com.drew.imaging.ImageProcessingException;
 import com.drew.metadata.Directory;
 import com.drew.metadata.Metadata;
 import com.drew.metadata.Tag;
+import com.yww.image.util.ImageHeader;
 import com.yww.image.util.OpencvUtil;
 import org.apache.commons.imaging.ImageInfo;
 import org.apache.commons.imaging.ImageReadException;
@@ -14,6 +15,7 @@ import org.apache.commons.imaging.Imaging;
 import org.opencv.core.Mat;
 import org.opencv.imgcodecs.Imgcodecs;
 
+import java.awt.Dimension;
 import java.io.IOException;
 
 /**
@@ -39,6 +41,25 @@ public class ImgInfo {
         return new int[]{widthResolution, heightResolution};
     }
 
+    /**
+     * 只读取图片头获取分辨率，不解码图片
+     *
+     * @param filePath  图片文件位置
+     * @return          [width, height] 水平分辨率 x 垂直分辨率
+     */
+    public static int[] getHeaderResolution(String filePath) {
+        Dimension size;
+        try {
+            size = ImageHeader.readSize(FileUtil.file(filePath));
+        } catch (IOException e) {
+            throw new RuntimeException("获取图片信息出错！");
+        }
+        if (size == null) {
+            throw new RuntimeException("不支持的图片格式！");
+        }
+        return new int[]{size.width, size.height};
+    }
+
     /**
      * 获取图片的DPI，获取不到返回-1
      * 依赖于commons-imaging
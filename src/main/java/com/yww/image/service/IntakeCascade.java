@@ -0,0 +1,360 @@
+package com.yww.image.service;
+
+import com.yww.image.util.DecodePolicy;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * <p>
+ *      入库质量检查级联
+ *      每个检查声明预估成本和拒绝规则，按成本从低到高执行，遇到第一个拒绝立即停止，
+ *      并统计每一级拒绝后省下的时间（后续检查的平均耗时之和）。
+ *      同一张图片不同检查需要的缩小解码结果在 {@link Context} 中共享
+ * </p>
+ * <pre>
+ *  IntakeCascade cascade = IntakeCascade.standard(1000, 150, 60, 240, 100, 5);
+ *  IntakeCascade.Result res = cascade.evaluate("D:\\temp\\1.jpg");
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class IntakeCascade {
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    /**
+     * 标准的入库检查：图片头分辨率、DPI、缩略图亮度、抽样清晰度、倾斜角
+     *
+     * @param minSide       最短边的最小像素
+     * @param minDpi        最小DPI，图片中没有DPI信息时不检查
+     * @param minBrightness 最小平均亮度
+     * @param maxBrightness 最大平均亮度
+     * @param minClarity    最小清晰度（1/2缩小图的Laplacian方差）
+     * @param maxSkew       最大倾斜角（度）
+     * @return              检查级联
+     */
+    public static IntakeCascade standard(int minSide, int minDpi, double minBrightness, double maxBrightness,
+                                         double minClarity, double maxSkew) {
+        IntakeCascade cascade = new IntakeCascade();
+        cascade.add(Check.of("resolution", 1, ctx -> {
+            int[] size = ctx.getSize();
+            return Math.min(size[0], size[1]) < minSide ? "分辨率过低：" + size[0] + "x" + size[1] : null;
+        }));
+        cascade.add(Check.of("dpi", 2, ctx -> {
+            int dpi;
+            try {
+                dpi = ImgInfo.getDpi1(ctx.getFilePath());
+            } catch (RuntimeException e) {
+                // 不支持读取DPI的格式
+                dpi = -1;
+            }
+            return dpi > 0 && dpi < minDpi ? "DPI过低：" + dpi : null;
+        }));
+        cascade.add(Check.of("brightness", 10, ctx -> {
+            double brightness = Core.mean(ctx.gray(DecodePolicy.EIGHTH)).val[0];
+            if (brightness < minBrightness) {
+                return "图片过暗：" + Math.round(brightness);
+            }
+            return brightness > maxBrightness ? "图片过亮：" + Math.round(brightness) : null;
+        }));
+        cascade.add(Check.of("clarity", 50, ctx -> {
+            double clarity = Clarity.sharpness(ctx.gray(DecodePolicy.HALF)).getLaplacianVariance();
+            return clarity < minClarity ? "图片模糊：" + Math.round(clarity) : null;
+        }));
+        cascade.add(Check.of("skew", 200, ctx -> {
+            DecodePolicy policy = DecodePolicy.of(DecodePolicy.Operation.DESKEW);
+            double angle = Deskew.estimateSkew(ctx.gray(policy), policy.getFactor()).getAngle();
+            return Math.abs(angle) > maxSkew ? "倾斜角过大：" + String.format("%.2f", angle) : null;
+        }));
+        return cascade;
+    }
+
+    /**
+     * 添加检查，按预估成本重新排序
+     *
+     * @param check 检查
+     * @return      当前级联
+     */
+    public synchronized IntakeCascade add(Check check) {
+        stages.add(new Stage(check));
+        stages.sort(Comparator.comparingDouble(stage -> stage.check.getCost()));
+        return this;
+    }
+
+    /**
+     * 检查图片
+     *
+     * @param filePath  图片路径
+     * @return          检查结果
+     */
+    public Result evaluate(String filePath) {
+        List<Stage> ordered;
+        synchronized (this) {
+            ordered = new ArrayList<>(stages);
+        }
+        long start = System.nanoTime();
+        try (Context ctx = new Context(filePath)) {
+            for (int i = 0; i < ordered.size(); i++) {
+                Stage stage = ordered.get(i);
+                long begin = System.nanoTime();
+                String reason = stage.check.check(ctx);
+                stage.record(System.nanoTime() - begin);
+                if (reason != null) {
+                    // 拒绝后剩余检查不再执行，按各自的平均耗时估算省下的时间
+                    long saved = 0;
+                    for (int j = i + 1; j < ordered.size(); j++) {
+                        saved += ordered.get(j).averageNanos();
+                    }
+                    stage.reject(saved);
+                    return new Result(stage.check.getName(), reason, System.nanoTime() - start, saved);
+                }
+            }
+        }
+        return new Result(null, null, System.nanoTime() - start, 0);
+    }
+
+    /**
+     * 各级检查的统计，按执行顺序
+     *
+     * @return  统计
+     */
+    public synchronized List<Stage> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    /**
+     * 质量检查
+     */
+    public interface Check {
+
+        /**
+         * 检查名称
+         *
+         * @return  名称
+         */
+        String getName();
+
+        /**
+         * 预估成本，只用于排序，单位自定，越小越先执行
+         *
+         * @return  成本
+         */
+        double getCost();
+
+        /**
+         * 执行检查
+         *
+         * @param ctx   当前图片
+         * @return      拒绝原因，通过时返回null
+         */
+        String check(Context ctx);
+
+        /**
+         * 创建检查
+         *
+         * @param name  名称
+         * @param cost  预估成本
+         * @param rule  拒绝规则，返回拒绝原因，通过时返回null
+         * @return      检查
+         */
+        static Check of(String name, double cost, Function<Context, String> rule) {
+            return new Check() {
+                @Override
+                public String getName() {
+                    return name;
+                }
+
+                @Override
+                public double getCost() {
+                    return cost;
+                }
+
+                @Override
+                public String check(Context ctx) {
+                    return rule.apply(ctx);
+                }
+            };
+        }
+    }
+
+    /**
+     * 一张图片的检查上下文，缓存图片头尺寸和各个缩小倍数的灰度图
+     */
+    public static class Context implements Closeable {
+
+        private final String filePath;
+
+        private final Map<DecodePolicy, Mat> grays = new EnumMap<>(DecodePolicy.class);
+
+        private int[] size;
+
+        Context(String filePath) {
+            this.filePath = filePath;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        /**
+         * 只读取图片头的宽高
+         *
+         * @return  [width, height]
+         */
+        public int[] getSize() {
+            if (size == null) {
+                size = ImgInfo.getHeaderResolution(filePath);
+            }
+            return size;
+        }
+
+        /**
+         * 按解码策略读取的灰度图，同一张图片只解码一次，由上下文释放
+         *
+         * @param policy    解码策略
+         * @return          灰度图
+         */
+        public Mat gray(DecodePolicy policy) {
+            Mat gray = grays.get(policy);
+            if (gray == null) {
+                gray = policy.readGray(filePath);
+                if (gray.empty()) {
+                    throw new RuntimeException("无法读取图片：" + filePath);
+                }
+                grays.put(policy, gray);
+            }
+            return gray;
+        }
+
+        @Override
+        public void close() {
+            for (Mat mat : grays.values()) {
+                mat.release();
+            }
+            grays.clear();
+        }
+    }
+
+    /**
+     * 一级检查的统计
+     */
+    public static class Stage {
+
+        private final Check check;
+
+        private final AtomicLong runs = new AtomicLong();
+
+        private final AtomicLong rejections = new AtomicLong();
+
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        private final AtomicLong savedNanos = new AtomicLong();
+
+        Stage(Check check) {
+            this.check = check;
+        }
+
+        void record(long nanos) {
+            runs.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+        }
+
+        void reject(long saved) {
+            rejections.incrementAndGet();
+            savedNanos.addAndGet(saved);
+        }
+
+        long averageNanos() {
+            long count = runs.get();
+            return count == 0 ? 0 : totalNanos.get() / count;
+        }
+
+        public String getName() {
+            return check.getName();
+        }
+
+        public double getCost() {
+            return check.getCost();
+        }
+
+        public long getRuns() {
+            return runs.get();
+        }
+
+        public long getRejections() {
+            return rejections.get();
+        }
+
+        /**
+         * 平均耗时（毫秒）
+         */
+        public double getAverageMillis() {
+            return averageNanos() / 1e6;
+        }
+
+        /**
+         * 在这一级拒绝后省下的时间（毫秒）
+         */
+        public double getSavedMillis() {
+            return savedNanos.get() / 1e6;
+        }
+    }
+
+    /**
+     * 检查结果
+     */
+    public static class Result {
+
+        private final String rejectedBy;
+
+        private final String reason;
+
+        private final long nanos;
+
+        private final long savedNanos;
+
+        Result(String rejectedBy, String reason, long nanos, long savedNanos) {
+            this.rejectedBy = rejectedBy;
+            this.reason = reason;
+            this.nanos = nanos;
+            this.savedNanos = savedNanos;
+        }
+
+        public boolean isPassed() {
+            return rejectedBy == null;
+        }
+
+        /**
+         * 拒绝的检查名称，通过时为null
+         */
+        public String getRejectedBy() {
+            return rejectedBy;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public double getMillis() {
+            return nanos / 1e6;
+        }
+
+        /**
+         * 提前拒绝省下的时间（毫秒），按后续检查的平均耗时估算
+         */
+        public double getSavedMillis() {
+            return savedNanos / 1e6;
+        }
+    }
+
+}
@@ -0,0 +1,812 @@
+package com.yww.image.service;
+
+import cn.hutool.core.io.FileUtil;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ *      在DCT域计算JPEG的清晰度和压缩质量
+ *      只做Huffman解码得到量化后的DCT系数，不做反DCT和颜色转换。
+ *      DCT基函数的二阶差分仍是自身乘以 4sin²(πu/16)，所以亮度块的Laplacian能量可以直接由
+ *      反量化后的系数按频率加权求出（JPEG的DCT是正交变换，能量守恒），结果为整幅图Laplacian的均方根（忽略块边界）。
+ *      压缩质量由亮度和色度量化表与IJG标准表按质量缩放后的结果比较得出。
+ *      只支持8位基线（顺序Huffman）JPEG，渐进式等其他格式返回null，由调用方走完整解码
+ * </p>
+ * <pre>
+ *  JpegClarity.Calibration calibration = JpegClarity.calibrate(files);
+ *  double clarity = JpegClarity.laplacian("D:\\temp\\1.jpg", calibration);
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class JpegClarity {
+
+    /**
+     * 之字形顺序对应的自然顺序下标
+     */
+    private static final int[] ZIGZAG = {
+            0, 1, 8, 16, 9, 2, 3, 10, 17, 24, 32, 25, 18, 11, 4, 5,
+            12, 19, 26, 33, 40, 48, 41, 34, 27, 20, 13, 6, 7, 14, 21, 28,
+            35, 42, 49, 56, 57, 50, 43, 36, 29, 22, 15, 23, 30, 37, 44, 51,
+            58, 59, 52, 45, 38, 31, 39, 46, 53, 60, 61, 54, 47, 55, 62, 63
+    };
+
+    /**
+     * IJG标准亮度量化表（自然顺序）
+     */
+    private static final int[] IJG_LUMINANCE = {
+            16, 11, 10, 16, 24, 40, 51, 61, 12, 12, 14, 19, 26, 58, 60, 55,
+            14, 13, 16, 24, 40, 57, 69, 56, 14, 17, 22, 29, 51, 87, 80, 62,
+            18, 22, 37, 56, 68, 109, 103, 77, 24, 35, 55, 64, 81, 104, 113, 92,
+            49, 64, 78, 87, 103, 121, 120, 101, 72, 92, 95, 98, 112, 100, 103, 99
+    };
+
+    /**
+     * IJG标准色度量化表（自然顺序）
+     */
+    private static final int[] IJG_CHROMINANCE = {
+            17, 18, 24, 47, 99, 99, 99, 99, 18, 21, 26, 66, 99, 99, 99, 99,
+            24, 26, 56, 99, 99, 99, 99, 99, 47, 66, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99
+    };
+
+    /**
+     * 之字形顺序下每个系数的Laplacian增益 4sin²(πu/16) + 4sin²(πv/16)
+     */
+    private static final double[] LAPLACIAN_GAIN = new double[64];
+
+    static {
+        for (int k = 0; k < 64; k++) {
+            int u = ZIGZAG[k] % 8;
+            int v = ZIGZAG[k] / 8;
+            double su = Math.sin(Math.PI * u / 16);
+            double sv = Math.sin(Math.PI * v / 16);
+            LAPLACIAN_GAIN[k] = 4 * su * su + 4 * sv * sv;
+        }
+    }
+
+    /**
+     * 读取JPEG系数统计
+     *
+     * @param filePath  图片路径
+     * @return          统计结果，不是基线JPEG或数据无法解析时返回null
+     */
+    public static Result read(String filePath) {
+        return read(FileUtil.readBytes(filePath));
+    }
+
+    /**
+     * 读取JPEG系数统计
+     *
+     * @param bytes     图片文件内容
+     * @return          统计结果，不是基线JPEG或数据无法解析时返回null
+     */
+    public static Result read(byte[] bytes) {
+        if (bytes.length < 4 || (bytes[0] & 0xff) != 0xFF || (bytes[1] & 0xff) != 0xD8) {
+            return null;
+        }
+        try {
+            return new Decoder(bytes).decode();
+        } catch (RuntimeException e) {
+            // 损坏或不支持的数据交给完整解码处理
+            return null;
+        }
+    }
+
+    /**
+     * 计算图片清晰度，与 {@link Clarity#laplacian(Mat)} 同一量纲
+     * 基线JPEG在DCT域计算后按标定结果换算，其他图片完整解码后计算
+     *
+     * @param filePath      图片路径
+     * @param calibration   标定结果
+     * @return              清晰度
+     */
+    public static double laplacian(String filePath, Calibration calibration) {
+        byte[] bytes = FileUtil.readBytes(filePath);
+        Result res = read(bytes);
+        if (res != null) {
+            return calibration.predict(res.getLaplacianRms());
+        }
+        Mat mat = decode(bytes);
+        if (mat.empty()) {
+            throw new IllegalArgumentException("无法读取图片：" + filePath);
+        }
+        try {
+            return Clarity.laplacian(mat);
+        } finally {
+            mat.release();
+        }
+    }
+
+    /**
+     * 用一组图片标定DCT域清晰度与 {@link Clarity#laplacian(Mat)} 的线性关系，并对比耗时
+     * 两种方式都从内存中同一份文件内容开始计时，非基线JPEG不参与标定
+     *
+     * @param files     图片路径
+     * @return          标定结果
+     */
+    public static Calibration calibrate(List<String> files) {
+        List<double[]> pairs = new ArrayList<>();
+        long dctNanos = 0;
+        long decodeNanos = 0;
+        for (String file : files) {
+            byte[] bytes = FileUtil.readBytes(file);
+            long start = System.nanoTime();
+            Result res = read(bytes);
+            long dct = System.nanoTime() - start;
+            if (res == null) {
+                continue;
+            }
+            start = System.nanoTime();
+            Mat mat = decode(bytes);
+            double laplacian = Clarity.laplacian(mat);
+            decodeNanos += System.nanoTime() - start;
+            mat.release();
+            dctNanos += dct;
+            pairs.add(new double[]{res.getLaplacianRms(), laplacian});
+        }
+        return new Calibration(pairs, dctNanos / 1e6, decodeNanos / 1e6);
+    }
+
+    private static Mat decode(byte[] bytes) {
+        MatOfByte buffer = new MatOfByte(bytes);
+        Mat mat = Imgcodecs.imdecode(buffer, Imgcodecs.IMREAD_COLOR);
+        buffer.release();
+        return mat;
+    }
+
+    /**
+     * 由量化表估计IJG质量：按1到100的质量缩放标准表，取与实际量化表差异最小的质量
+     *
+     * @param luminance     亮度量化表（之字形顺序）
+     * @param chrominance   色度量化表（之字形顺序），没有时为null
+     * @return              质量和平均差异
+     */
+    static double[] estimateQuality(int[] luminance, int[] chrominance) {
+        int best = -1;
+        double bestError = Double.MAX_VALUE;
+        for (int quality = 1; quality <= 100; quality++) {
+            int scale = quality < 50 ? 5000 / quality : 200 - quality * 2;
+            double error = 0;
+            int count = 0;
+            for (int k = 0; k < 64; k++) {
+                error += Math.abs(luminance[k] - scaled(IJG_LUMINANCE[ZIGZAG[k]], scale));
+                count++;
+                if (chrominance != null) {
+                    error += Math.abs(chrominance[k] - scaled(IJG_CHROMINANCE[ZIGZAG[k]], scale));
+                    count++;
+                }
+            }
+            error /= count;
+            if (error < bestError) {
+                bestError = error;
+                best = quality;
+            }
+        }
+        return new double[]{best, bestError};
+    }
+
+    private static int scaled(int base, int scale) {
+        return Math.max(1, Math.min(255, (base * scale + 50) / 100));
+    }
+
+    /**
+     * 系数统计结果
+     */
+    public static class Result {
+
+        private final int width;
+
+        private final int height;
+
+        private final long blocks;
+
+        private final double laplacianRms;
+
+        private final int quality;
+
+        private final double qualityError;
+
+        Result(int width, int height, long blocks, double laplacianRms, int quality, double qualityError) {
+            this.width = width;
+            this.height = height;
+            this.blocks = blocks;
+            this.laplacianRms = laplacianRms;
+            this.quality = quality;
+            this.qualityError = qualityError;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * 参与统计的亮度块数
+         */
+        public long getBlocks() {
+            return blocks;
+        }
+
+        /**
+         * 亮度Laplacian的均方根，越大越清晰
+         */
+        public double getLaplacianRms() {
+            return laplacianRms;
+        }
+
+        /**
+         * 估计的IJG压缩质量（1-100）
+         */
+        public int getQuality() {
+            return quality;
+        }
+
+        /**
+         * 量化表与估计质量对应的标准表的平均差异，0表示完全一致（IJG/libjpeg编码），
+         * 较大时说明编码器使用了自定义量化表，质量只能作为参考
+         */
+        public double getQualityError() {
+            return qualityError;
+        }
+    }
+
+    /**
+     * 标定结果，Clarity.laplacian ≈ slope * laplacianRms + intercept
+     */
+    public static class Calibration {
+
+        private final double slope;
+
+        private final double intercept;
+
+        private final double correlation;
+
+        private final int samples;
+
+        private final double dctMillis;
+
+        private final double decodeMillis;
+
+        public Calibration(double slope, double intercept) {
+            this(slope, intercept, Double.NaN, 0, 0, 0);
+        }
+
+        private Calibration(double slope, double intercept, double correlation, int samples,
+                            double dctMillis, double decodeMillis) {
+            this.slope = slope;
+            this.intercept = intercept;
+            this.correlation = correlation;
+            this.samples = samples;
+            this.dctMillis = dctMillis;
+            this.decodeMillis = decodeMillis;
+        }
+
+        /**
+         * 最小二乘拟合
+         */
+        Calibration(List<double[]> pairs, double dctMillis, double decodeMillis) {
+            int n = pairs.size();
+            if (n < 2) {
+                throw new IllegalArgumentException("标定至少需要两张基线JPEG图片");
+            }
+            double mx = 0;
+            double my = 0;
+            for (double[] p : pairs) {
+                mx += p[0] / n;
+                my += p[1] / n;
+            }
+            double sxy = 0;
+            double sxx = 0;
+            double syy = 0;
+            for (double[] p : pairs) {
+                sxy += (p[0] - mx) * (p[1] - my);
+                sxx += (p[0] - mx) * (p[0] - mx);
+                syy += (p[1] - my) * (p[1] - my);
+            }
+            this.slope = sxx == 0 ? 0 : sxy / sxx;
+            this.intercept = my - slope * mx;
+            this.correlation = sxx == 0 || syy == 0 ? 0 : sxy / Math.sqrt(sxx * syy);
+            this.samples = n;
+            this.dctMillis = dctMillis;
+            this.decodeMillis = decodeMillis;
+        }
+
+        /**
+         * 由DCT域结果换算为Clarity.laplacian
+         */
+        public double predict(double laplacianRms) {
+            return slope * laplacianRms + intercept;
+        }
+
+        public double getSlope() {
+            return slope;
+        }
+
+        public double getIntercept() {
+            return intercept;
+        }
+
+        /**
+         * 皮尔逊相关系数
+         */
+        public double getCorrelation() {
+            return correlation;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        /**
+         * DCT域计算的总耗时（毫秒）
+         */
+        public double getDctMillis() {
+            return dctMillis;
+        }
+
+        /**
+         * 完整解码并计算Clarity.laplacian的总耗时（毫秒）
+         */
+        public double getDecodeMillis() {
+            return decodeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("laplacian = %.4f * rms + %.4f, r=%.3f, n=%d, dct %.1fms, decode %.1fms",
+                    slope, intercept, correlation, samples, dctMillis, decodeMillis);
+        }
+    }
+
+    /**
+     * 基线JPEG的Huffman解码器
+     */
+    private static class Decoder {
+
+        private final byte[] data;
+
+        private int pos;
+
+        private final int[][] quantization = new int[4][];
+
+        private final Huffman[] dcTables = new Huffman[4];
+
+        private final Huffman[] acTables = new Huffman[4];
+
+        private int width;
+
+        private int height;
+
+        private int restartInterval;
+
+        private Component[] components;
+
+        private int maxH = 1;
+
+        private int maxV = 1;
+
+        /**
+         * 位缓冲，高位对齐
+         */
+        private int acc;
+
+        private int bits;
+
+        /**
+         * 读到标记后不再读取数据，后续位补0
+         */
+        private boolean marker;
+
+        private double energy;
+
+        private long blocks;
+
+        Decoder(byte[] data) {
+            this.data = data;
+            this.pos = 2;
+        }
+
+        Result decode() {
+            while (pos + 4 <= data.length) {
+                if ((data[pos] & 0xff) != 0xFF) {
+                    return null;
+                }
+                int code = data[pos + 1] & 0xff;
+                if (code == 0xFF) {
+                    // 填充字节
+                    pos++;
+                    continue;
+                }
+                if (code == 0xD9) {
+                    break;
+                }
+                int length = u16(pos + 2);
+                int start = pos + 4;
+                int end = pos + 2 + length;
+                if (end > data.length) {
+                    return null;
+                }
+                switch (code) {
+                    case 0xC0:
+                    case 0xC1:
+                        if (!readFrame(start, end)) {
+                            return null;
+                        }
+                        break;
+                    case 0xC4:
+                        readHuffman(start, end);
+                        break;
+                    case 0xDB:
+                        readQuantization(start, end);
+                        break;
+                    case 0xDD:
+                        restartInterval = u16(start);
+                        break;
+                    case 0xDA:
+                        if (components == null) {
+                            return null;
+                        }
+                        pos = end;
+                        readScan(start, end);
+                        continue;
+                    default:
+                        // 渐进式、无损、算术编码等SOF不支持
+                        if (code >= 0xC2 && code <= 0xCF && code != 0xC4 && code != 0xC8 && code != 0xCC) {
+                            return null;
+                        }
+                        break;
+                }
+                pos = end;
+            }
+            if (components == null || blocks == 0) {
+                return null;
+            }
+            int[] luminance = quantization[components[0].tq];
+            int[] chrominance = components.length > 1 ? quantization[components[1].tq] : null;
+            double[] quality = luminance == null ? new double[]{-1, Double.NaN}
+                    : estimateQuality(luminance, chrominance);
+            return new Result(width, height, blocks, Math.sqrt(energy / (64.0 * blocks)),
+                    (int) quality[0], quality[1]);
+        }
+
+        /**
+         * 段内数据不完整或引用了不存在的表时视为数据损坏
+         */
+        private static void check(boolean valid) {
+            if (!valid) {
+                throw new IllegalArgumentException("JPEG数据损坏");
+            }
+        }
+
+        private boolean readFrame(int p, int end) {
+            if (p + 6 > end || (data[p] & 0xff) != 8) {
+                return false;
+            }
+            height = u16(p + 1);
+            width = u16(p + 3);
+            int count = data[p + 5] & 0xff;
+            if (width == 0 || height == 0 || count == 0 || p + 6 + count * 3 > end) {
+                return false;
+            }
+            components = new Component[count];
+            for (int i = 0; i < count; i++) {
+                int q = p + 6 + i * 3;
+                Component c = new Component();
+                c.id = data[q] & 0xff;
+                c.h = (data[q + 1] & 0xff) >> 4;
+                c.v = data[q + 1] & 0x0f;
+                c.tq = data[q + 2] & 0x03;
+                if (c.h == 0 || c.v == 0) {
+                    return false;
+                }
+                maxH = Math.max(maxH, c.h);
+                maxV = Math.max(maxV, c.v);
+                components[i] = c;
+            }
+            return true;
+        }
+
+        private void readQuantization(int p, int end) {
+            while (p < end) {
+                int precision = (data[p] & 0xff) >> 4;
+                int id = data[p] & 0x03;
+                p++;
+                check(p + (precision == 0 ? 64 : 128) <= end);
+                int[] table = new int[64];
+                for (int k = 0; k < 64; k++) {
+                    if (precision == 0) {
+                        table[k] = data[p++] & 0xff;
+                    } else {
+                        table[k] = u16(p);
+                        p += 2;
+                    }
+                }
+                quantization[id] = table;
+            }
+        }
+
+        private void readHuffman(int p, int end) {
+            while (p < end) {
+                int type = (data[p] & 0xff) >> 4;
+                int id = data[p] & 0x03;
+                check(p + 17 <= end);
+                int[] counts = new int[17];
+                int total = 0;
+                for (int i = 1; i <= 16; i++) {
+                    counts[i] = data[p + i] & 0xff;
+                    total += counts[i];
+                }
+                p += 17;
+                check(p + total <= end);
+                int[] symbols = new int[total];
+                for (int i = 0; i < total; i++) {
+                    symbols[i] = data[p + i] & 0xff;
+                }
+                p += total;
+                Huffman table = new Huffman(counts, symbols);
+                if (type == 0) {
+                    dcTables[id] = table;
+                } else {
+                    acTables[id] = table;
+                }
+            }
+        }
+
+        /**
+         * 解码一个扫描，只统计第一个分量（亮度）的系数
+         */
+        private void readScan(int p, int end) {
+            int count = data[p] & 0xff;
+            check(count > 0 && p + 1 + count * 2 <= end);
+            Component[] scan = new Component[count];
+            for (int i = 0; i < count; i++) {
+                int id = data[p + 1 + i * 2] & 0xff;
+                int tables = data[p + 2 + i * 2] & 0xff;
+                for (Component c : components) {
+                    if (c.id == id) {
+                        scan[i] = c;
+                    }
+                }
+                if (scan[i] == null) {
+                    throw new IllegalArgumentException("JPEG扫描中的分量不存在：" + id);
+                }
+                check((tables >> 4) < dcTables.length && (tables & 0x0f) < acTables.length);
+                scan[i].dc = dcTables[tables >> 4];
+                scan[i].ac = acTables[tables & 0x0f];
+                check(scan[i].dc != null && scan[i].ac != null);
+                scan[i].prediction = 0;
+                int[] q = quantization[scan[i].tq];
+                scan[i].weights = new double[64];
+                for (int k = 0; k < 64; k++) {
+                    double w = q == null ? 0 : q[k] * LAPLACIAN_GAIN[k];
+                    scan[i].weights[k] = w * w;
+                }
+            }
+            Component luminance = components[0];
+            acc = 0;
+            bits = 0;
+            marker = false;
+
+            int mcusX;
+            int mcusY;
+            if (count == 1) {
+                // 非交错扫描按分量自身的块数，不补齐到MCU
+                Component c = scan[0];
+                mcusX = ((width * c.h + maxH - 1) / maxH + 7) / 8;
+                mcusY = ((height * c.v + maxV - 1) / maxV + 7) / 8;
+            } else {
+                mcusX = (width + 8 * maxH - 1) / (8 * maxH);
+                mcusY = (height + 8 * maxV - 1) / (8 * maxV);
+            }
+            int total = mcusX * mcusY;
+            for (int mcu = 0; mcu < total; mcu++) {
+                if (restartInterval > 0 && mcu > 0 && mcu % restartInterval == 0) {
+                    restart(scan);
+                }
+                for (Component c : scan) {
+                    int n = count == 1 ? 1 : c.h * c.v;
+                    for (int b = 0; b < n; b++) {
+                        decodeBlock(c, c == luminance);
+                    }
+                }
+            }
+            // 跳过扫描数据，停在下一个标记
+            while (pos + 1 < data.length) {
+                if ((data[pos] & 0xff) == 0xFF) {
+                    int next = data[pos + 1] & 0xff;
+                    if (next != 0 && (next < 0xD0 || next > 0xD7)) {
+                        break;
+                    }
+                }
+                pos++;
+            }
+        }
+
+        private void decodeBlock(Component c, boolean measure) {
+            int s = c.dc.decode(this);
+            c.prediction += receiveExtend(s);
+            double sum = 0;
+            double[] weights = c.weights;
+            Huffman ac = c.ac;
+            for (int k = 1; k < 64; k++) {
+                int rs = ac.decode(this);
+                int r = rs >> 4;
+                s = rs & 0x0f;
+                if (s == 0) {
+                    if (r != 15) {
+                        break;
+                    }
+                    k += 15;
+                    continue;
+                }
+                k += r;
+                if (k > 63) {
+                    throw new IllegalArgumentException("JPEG数据损坏");
+                }
+                int coefficient = receiveExtend(s);
+                sum += coefficient * coefficient * weights[k];
+            }
+            if (measure) {
+                energy += sum;
+                blocks++;
+            }
+        }
+
+        /**
+         * 重启标记：丢弃剩余位，跳过RSTn，DC预测值清零
+         */
+        private void restart(Component[] scan) {
+            acc = 0;
+            bits = 0;
+            marker = false;
+            while (pos + 1 < data.length && !((data[pos] & 0xff) == 0xFF
+                    && (data[pos + 1] & 0xff) >= 0xD0 && (data[pos + 1] & 0xff) <= 0xD7)) {
+                pos++;
+            }
+            pos += 2;
+            for (Component c : scan) {
+                c.prediction = 0;
+            }
+        }
+
+        /**
+         * 保证缓冲中至少有25位，遇到0xFF00时跳过填充的0，遇到标记后补0
+         */
+        void fill() {
+            while (bits <= 24) {
+                int b = 0;
+                if (!marker && pos < data.length) {
+                    b = data[pos] & 0xff;
+                    if (b == 0xFF) {
+                        int next = pos + 1 < data.length ? data[pos + 1] & 0xff : 0xD9;
+                        if (next == 0) {
+                            pos += 2;
+                        } else {
+                            marker = true;
+                            b = 0;
+                        }
+                    } else {
+                        pos++;
+                    }
+                }
+                acc |= b << (24 - bits);
+                bits += 8;
+            }
+        }
+
+        int peek(int n) {
+            return acc >>> (32 - n);
+        }
+
+        void skip(int n) {
+            acc <<= n;
+            bits -= n;
+        }
+
+        private int receiveExtend(int s) {
+            if (s == 0) {
+                return 0;
+            }
+            fill();
+            int v = peek(s);
+            skip(s);
+            return v < (1 << (s - 1)) ? v - (1 << s) + 1 : v;
+        }
+
+        private int u16(int p) {
+            return ((data[p] & 0xff) << 8) | (data[p + 1] & 0xff);
+        }
+    }
+
+    private static class Component {
+
+        private int id;
+
+        private int h;
+
+        private int v;
+
+        private int tq;
+
+        private Huffman dc;
+
+        private Huffman ac;
+
+        private int prediction;
+
+        /**
+         * 之字形顺序下每个量化系数的能量权重 (q * gain)²
+         */
+        private double[] weights;
+    }
+
+    /**
+     * Huffman表，9位以内的码字查表，更长的按码长逐位比较
+     */
+    private static class Huffman {
+
+        private static final int LOOKUP_BITS = 9;
+
+        private final int[] lookup = new int[1 << LOOKUP_BITS];
+
+        private final int[] maxCode = new int[18];
+
+        private final int[] valueOffset = new int[17];
+
+        private final int[] symbols;
+
+        Huffman(int[] counts, int[] symbols) {
+            this.symbols = symbols;
+            int code = 0;
+            int k = 0;
+            for (int length = 1; length <= 16; length++) {
+                valueOffset[length] = k - code;
+                for (int i = 0; i < counts[length]; i++) {
+                    if (length <= LOOKUP_BITS) {
+                        int shift = LOOKUP_BITS - length;
+                        for (int j = 0; j < 1 << shift; j++) {
+                            lookup[(code << shift) | j] = (length << 8) | symbols[k];
+                        }
+                    }
+                    code++;
+                    k++;
+                }
+                maxCode[length] = counts[length] == 0 ? -1 : code - 1;
+                code <<= 1;
+            }
+            maxCode[17] = Integer.MAX_VALUE;
+        }
+
+        int decode(Decoder in) {
+            in.fill();
+            int entry = lookup[in.peek(LOOKUP_BITS)];
+            if (entry != 0) {
+                in.skip(entry >> 8);
+                return entry & 0xff;
+            }
+            int length = LOOKUP_BITS + 1;
+            int code = in.peek(length);
+            while (code > maxCode[length]) {
+                length++;
+                if (length > 16) {
+                    throw new IllegalArgumentException("JPEG数据损坏");
+                }
+                code = in.peek(length);
+            }
+            in.skip(length);
+            return symbols[valueOffset[length] + code];
+        }
+    }
+
+}
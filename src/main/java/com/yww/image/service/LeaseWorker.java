@@ -0,0 +1,403 @@
+package com.yww.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ *      多节点共享目录处理
+ *      多个实例处理同一个共享收件目录，通过带代数的租约文件认领图片：
+ *      每个图片在租约目录下有一个子目录，其中代数最大的租约文件为当前租约。
+ *      认领时以硬链接方式原子创建下一代租约文件，目标已存在时失败，同一代只有一个节点能成功；
+ *      租约过期后其他节点同样创建下一代接管，不会移动或覆盖其他节点的租约文件。
+ *      每个节点只改写自己那一代的租约文件来续约，被接管后旧租约不再是最大代数，续约不影响新租约。
+ *      处理完成后写入完成标记并删除租约，处理失败时把自己的租约改为已过期，代数只增不减。每次只认领少量文件，处理快的节点自然会认领更多
+ * </p>
+ * <pre>
+ *  租约文件：收件目录/.leases/文件名/0000000001.lease，内容为 节点标识\n过期时间
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class LeaseWorker implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaseWorker.class);
+
+    /**
+     * 租约目录
+     */
+    private static final String LEASE_DIR = ".leases";
+
+    /**
+     * 完成标记目录
+     */
+    private static final String DONE_DIR = ".done";
+
+    private static final String LEASE_SUFFIX = ".lease";
+
+    private final Path inbox;
+
+    private final Path leaseDir;
+
+    private final Path doneDir;
+
+    private final Consumer<Path> processor;
+
+    private final long leaseMillis;
+
+    private final int batchSize;
+
+    private final long pollMillis;
+
+    private final String nodeId;
+
+    /**
+     * 当前持有的租约及其代数，定时续约
+     */
+    private final Map<String, Long> held = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor();
+
+    private volatile boolean running = true;
+
+    private Thread thread;
+
+    /**
+     * @param inbox         共享收件目录
+     * @param processor     单个文件的处理操作
+     * @param leaseMillis   租约时长（毫秒）
+     * @param batchSize     每次最多认领的文件数
+     * @param pollMillis    没有可处理文件时的等待时间（毫秒）
+     */
+    public LeaseWorker(String inbox, Consumer<Path> processor, long leaseMillis, int batchSize, long pollMillis) {
+        this.inbox = Paths.get(inbox);
+        this.leaseDir = this.inbox.resolve(LEASE_DIR);
+        this.doneDir = this.inbox.resolve(DONE_DIR);
+        this.processor = processor;
+        this.leaseMillis = leaseMillis;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * 启动后台处理线程和续约任务
+     */
+    public void start() {
+        try {
+            Files.createDirectories(leaseDir);
+            Files.createDirectories(doneDir);
+        } catch (IOException e) {
+            throw new RuntimeException("创建租约目录出错！", e);
+        }
+        long period = Math.max(1, leaseMillis / 3);
+        renewer.scheduleAtFixedRate(this::renewAll, period, period, TimeUnit.MILLISECONDS);
+        thread = new Thread(this, "lease-worker");
+        thread.start();
+    }
+
+    /**
+     * 停止处理，正在处理的文件处理完后退出
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(leaseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        renewer.shutdownNow();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            int processed = runOnce();
+            if (processed == 0) {
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 认领一批文件并处理
+     *
+     * @return  处理的文件数
+     */
+    public int runOnce() {
+        List<Path> claimed = new ArrayList<>();
+        for (Path file : pending()) {
+            if (claimed.size() >= batchSize) {
+                break;
+            }
+            if (claim(file.getFileName().toString())) {
+                claimed.add(file);
+            }
+        }
+        for (Path file : claimed) {
+            String name = file.getFileName().toString();
+            boolean done = Files.exists(doneDir.resolve(name));
+            try {
+                // 认领后再次确认，避免其他节点在列目录和认领之间已经处理完成
+                if (!done) {
+                    processor.accept(file);
+                    Files.write(doneDir.resolve(name), nodeId.getBytes(StandardCharsets.UTF_8));
+                    done = true;
+                }
+            } catch (IOException | RuntimeException e) {
+                // 处理失败不写完成标记，释放租约后由其他节点或下一轮重试
+                log.warn("处理文件出错：{}", file, e);
+            } finally {
+                release(name, done);
+            }
+        }
+        return claimed.size();
+    }
+
+    /**
+     * 列出还没有完成的文件，随机打乱以减少多个节点争抢同一个文件
+     */
+    private List<Path> pending() {
+        List<Path> res = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inbox)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".") || !Files.isRegularFile(file) || Files.exists(doneDir.resolve(name))) {
+                    continue;
+                }
+                res.add(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("读取收件目录出错！", e);
+        }
+        Collections.shuffle(res);
+        return res;
+    }
+
+    /**
+     * 认领文件：没有租约时创建第1代，当前租约过期时创建下一代
+     *
+     * @param name  文件名
+     * @return      是否认领成功
+     */
+    boolean claim(String name) {
+        Path dir = leaseDir.resolve(name);
+        try {
+            Files.createDirectories(dir);
+            long current = latest(dir);
+            if (current > 0) {
+                String content;
+                try {
+                    content = new String(Files.readAllBytes(lease(dir, current)), StandardCharsets.UTF_8);
+                } catch (NoSuchFileException e) {
+                    // 租约刚被释放，下一轮再认领
+                    return false;
+                }
+                if (!expired(content)) {
+                    return false;
+                }
+            }
+            long generation = current + 1;
+            create(name, dir, generation);
+            held.put(name, generation);
+            if (current > 0) {
+                // 接管成功后清理过期的租约，失败不影响结果
+                Files.deleteIfExists(lease(dir, current));
+            }
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // 其他节点先创建了这一代租约
+            return false;
+        } catch (IOException e) {
+            // 租约目录被释放的节点删除等情况，下一轮重试
+            return false;
+        }
+    }
+
+    /**
+     * 创建指定代数的租约文件
+     * 先写入节点独有的临时文件再创建硬链接，目标已存在时创建链接会失败，其他节点不会读到写了一半的租约
+     */
+    private void create(String name, Path dir, long generation) throws IOException {
+        Path temp = leaseDir.resolve(name + "." + nodeId + ".tmp");
+        Files.write(temp, leaseContent());
+        try {
+            Files.createLink(lease(dir, generation), temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 续约当前持有的所有租约
+     * 已经出现更大的代数说明被其他节点接管，放弃该租约
+     */
+    private void renewAll() {
+        for (Map.Entry<String, Long> entry : held.entrySet()) {
+            String name = entry.getKey();
+            long generation = entry.getValue();
+            try {
+                if (!rewrite(name, generation, System.currentTimeMillis() + leaseMillis)) {
+                    held.remove(name, generation);
+                }
+            } catch (IOException e) {
+                log.warn("续约出错：{}", name, e);
+                held.remove(name, generation);
+            }
+        }
+    }
+
+    /**
+     * 改写本节点那一代的租约文件
+     * 只写自己的代数，即使检查之后被其他节点接管，写入的也只是已经失效的旧租约，不会覆盖新租约
+     *
+     * @return  本节点的代数是否仍为最大代数
+     */
+    private boolean rewrite(String name, long generation, long expiry) throws IOException {
+        Path dir = leaseDir.resolve(name);
+        if (latest(dir) != generation) {
+            return false;
+        }
+        Path temp = leaseDir.resolve(name + "." + nodeId + ".renew");
+        Files.write(temp, (nodeId + "\n" + expiry).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, lease(dir, generation), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * 释放租约
+     * 已完成的文件不会再被认领，删除自己及更早代数的租约文件，目录为空时一并删除；
+     * 处理失败时把自己的租约改为已过期，保留代数，下一个节点从下一代认领，代数不会回到之前用过的值。
+     * 已被其他节点接管时不动新的租约
+     *
+     * @param name  文件名
+     * @param done  是否已写入完成标记
+     */
+    private void release(String name, boolean done) {
+        Long generation = held.remove(name);
+        if (generation == null) {
+            return;
+        }
+        Path dir = leaseDir.resolve(name);
+        try {
+            if (!done) {
+                rewrite(name, generation, 0);
+                return;
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + LEASE_SUFFIX)) {
+                for (Path file : stream) {
+                    if (generation(file) <= generation) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            Files.deleteIfExists(dir);
+        } catch (DirectoryNotEmptyException e) {
+            // 其他节点已接管，保留其租约
+        } catch (IOException e) {
+            // 释放失败时租约到期后自然失效
+            log.debug("释放租约出错：{}", name, e);
+        }
+    }
+
+    /**
+     * 是否仍持有文件的租约
+     *
+     * @param name  文件名
+     * @return      本节点的代数是否为最大代数
+     */
+    boolean isOwner(String name) {
+        Long generation = held.get(name);
+        try {
+            return generation != null && latest(leaseDir.resolve(name)) == generation;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 最大的租约代数，没有租约时返回0
+     */
+    private static long latest(Path dir) throws IOException {
+        long max = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + LEASE_SUFFIX)) {
+            for (Path file : stream) {
+                max = Math.max(max, generation(file));
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        return max;
+    }
+
+    /**
+     * 租约文件名中的代数，不是租约文件时返回0
+     */
+    private static long generation(Path file) {
+        String fileName = file.getFileName().toString();
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.length() - LEASE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Path lease(Path dir, long generation) {
+        return dir.resolve(String.format("%010d", generation) + LEASE_SUFFIX);
+    }
+
+    /**
+     * 新租约的内容：节点标识和过期时间
+     */
+    private byte[] leaseContent() {
+        return (nodeId + "\n" + (System.currentTimeMillis() + leaseMillis)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean expired(String content) {
+        int index = content.indexOf('\n');
+        if (index < 0) {
+            // 内容损坏的租约，按过期处理
+            return true;
+        }
+        try {
+            return Long.parseLong(content.substring(index + 1).trim()) < System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+}
@@ -0,0 +1,326 @@
+package com.yww.image.service;
+
+import com.yww.image.util.OpencvUtil;
+import com.yww.image.util.RemoveBlackUtil2;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>
+ *      多页TIFF处理
+ *      逐页读取，在内存预算内多线程并行处理，再按页码顺序逐页写入多页TIFF，整个文档不会同时放在内存中
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class MultiPage {
+
+    /**
+     * 默认内存预算，512MB
+     */
+    public static final long DEFAULT_BUDGET = 512L * 1024 * 1024;
+
+    /**
+     * 估算单页处理时的内存，输入、中间结果和输出大约为单页的3倍
+     */
+    private static final int PAGE_COPIES = 3;
+
+    /**
+     * 多页TIFF逐页纠偏
+     *
+     * @param src   输入路径
+     * @param dst   输出路径
+     */
+    public static void deskew(String src, String dst) {
+        process(src, dst, Deskew::deskew);
+    }
+
+    /**
+     * 多页TIFF逐页去黑边
+     *
+     * @param src   输入路径
+     * @param dst   输出路径
+     */
+    public static void removeBlack(String src, String dst) {
+        process(src, dst, RemoveBlackUtil2::removeBlackEdge);
+    }
+
+    /**
+     * 多页TIFF逐页处理，使用全部CPU和默认内存预算
+     *
+     * @param src       输入路径
+     * @param dst       输出路径
+     * @param operation 单页处理操作，可以返回新的Mat，也可以直接返回输入的Mat
+     */
+    public static void process(String src, String dst, UnaryOperator<Mat> operation) {
+        process(src, dst, operation, Runtime.getRuntime().availableProcessors(), DEFAULT_BUDGET);
+    }
+
+    /**
+     * 多页TIFF逐页处理
+     * 用同一个ImageIO读取器按页码顺序读取，IFD链只遍历一次；先按页头的尺寸申请内存预算，再解码页面
+     *
+     * @param src       输入路径
+     * @param dst       输出路径
+     * @param operation 单页处理操作，可以返回新的Mat，也可以直接返回输入的Mat
+     * @param threads   并行处理的线程数
+     * @param budget    同时处理的页面占用的内存上限（字节）
+     */
+    public static void process(String src, String dst, UnaryOperator<Mat> operation, int threads, long budget) {
+        // 信号量以KB为单位，避免超出int范围
+        int totalPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, budget / 1024));
+        Semaphore memory = new Semaphore(totalPermits);
+        BlockingQueue<PageTask> queue = new ArrayBlockingQueue<>(Math.max(2, threads * 2));
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ImageReader reader = null;
+        ImageInputStream in = null;
+
+        // 单独的写出线程按页码顺序写入，写完后释放内存预算
+        Thread writer = new Thread(() -> write(dst, queue, memory, error), "multi-page-writer");
+        writer.start();
+        try {
+            in = ImageIO.createImageInputStream(new File(src));
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new RuntimeException("读取多页图片出错！");
+            }
+            reader = readers.next();
+            reader.setInput(in, false, true);
+            for (int page = 0; error.get() == null; page++) {
+                int width;
+                int height;
+                try {
+                    width = reader.getWidth(page);
+                    height = reader.getHeight(page);
+                } catch (IndexOutOfBoundsException e) {
+                    // 已读到最后一页
+                    break;
+                }
+                // 输出为三通道BGR
+                long pageBytes = (long) width * height * 3;
+                int permits = (int) Math.min(totalPermits, Math.max(1, pageBytes * PAGE_COPIES / 1024));
+                memory.acquire(permits);
+                Mat mat;
+                try {
+                    mat = readPage(reader, src, page);
+                } catch (RuntimeException e) {
+                    memory.release(permits);
+                    throw e;
+                }
+                PageTask task = new PageTask(mat, permits);
+                task.future = executor.submit(() -> {
+                    if (!task.claim()) {
+                        return null;
+                    }
+                    Mat res = null;
+                    try {
+                        res = operation.apply(mat);
+                        return res;
+                    } finally {
+                        if (res != mat) {
+                            mat.release();
+                        }
+                    }
+                });
+                queue.put(task);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error.compareAndSet(null, e);
+        } catch (IOException | RuntimeException e) {
+            error.compareAndSet(null, e);
+        } finally {
+            try {
+                queue.put(PageTask.END);
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor.shutdownNow();
+            if (reader != null) {
+                reader.dispose();
+            }
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // 关闭时忽略
+                }
+            }
+        }
+        if (error.get() != null) {
+            throw new RuntimeException("多页图片处理出错！", error.get());
+        }
+    }
+
+    /**
+     * 读取一页，ImageIO不支持的压缩方式（例如旧式JPEG）改用OpenCV读取该页
+     */
+    private static Mat readPage(ImageReader reader, String src, int page) {
+        try {
+            return OpencvUtil.toMat(reader.read(page));
+        } catch (IOException e) {
+            List<Mat> mats = new ArrayList<>(1);
+            Imgcodecs.imreadmulti(src, mats, page, 1, Imgcodecs.IMREAD_COLOR);
+            if (mats.isEmpty()) {
+                throw new RuntimeException("读取第" + (page + 1) + "页出错！", e);
+            }
+            return mats.get(0);
+        }
+    }
+
+    /**
+     * 按顺序取出处理结果写入多页TIFF
+     */
+    private static void write(String dst, BlockingQueue<PageTask> queue, Semaphore memory, AtomicReference<Throwable> error) {
+        ImageWriter writer = null;
+        ImageOutputStream out = null;
+        try {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("tiff");
+            if (!writers.hasNext()) {
+                throw new IOException("当前JDK不支持写入TIFF");
+            }
+            writer = writers.next();
+            File file = new File(dst);
+            if (file.exists() && !file.delete()) {
+                throw new IOException("无法覆盖输出文件：" + dst);
+            }
+            out = ImageIO.createImageOutputStream(file);
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionType("LZW");
+            writer.prepareWriteSequence(null);
+
+            while (true) {
+                PageTask task = queue.take();
+                if (task == PageTask.END) {
+                    break;
+                }
+                if (error.get() != null) {
+                    discard(task, memory);
+                    continue;
+                }
+                Mat page = null;
+                try {
+                    page = task.future.get();
+                    writer.writeToSequence(new IIOImage(OpencvUtil.toBufferedImage(page), null, null), param);
+                } catch (ExecutionException e) {
+                    error.compareAndSet(null, e.getCause());
+                } finally {
+                    if (page != null) {
+                        page.release();
+                    }
+                    memory.release(task.permits);
+                }
+            }
+            writer.endWriteSequence();
+        } catch (IOException | RuntimeException e) {
+            error.compareAndSet(null, e);
+            drain(queue, memory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error.compareAndSet(null, e);
+        } finally {
+            if (writer != null) {
+                writer.dispose();
+            }
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    error.compareAndSet(null, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 写出失败后继续取出剩余任务并释放内存预算，避免读取线程阻塞
+     */
+    private static void drain(BlockingQueue<PageTask> queue, Semaphore memory) {
+        try {
+            while (true) {
+                PageTask task = queue.take();
+                if (task == PageTask.END) {
+                    return;
+                }
+                discard(task, memory);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 放弃一页：还没开始处理时由这里释放输入，已经开始时等处理完成后释放结果
+     */
+    private static void discard(PageTask task, Semaphore memory) throws InterruptedException {
+        try {
+            if (task.claim()) {
+                task.future.cancel(false);
+                task.input.release();
+            } else {
+                Mat res = task.future.get();
+                if (res != null) {
+                    res.release();
+                }
+            }
+        } catch (ExecutionException e) {
+            // 处理失败时输入已在任务中释放
+        } finally {
+            memory.release(task.permits);
+        }
+    }
+
+    /**
+     * 单页处理任务，处理线程和写出线程通过claim争夺输入页面的所有权，保证输入只释放一次
+     */
+    private static class PageTask {
+
+        private static final PageTask END = new PageTask(null, 0);
+
+        private final Mat input;
+
+        private final int permits;
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private volatile Future<Mat> future;
+
+        PageTask(Mat input, int permits) {
+            this.input = input;
+            this.permits = permits;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+}
@@ -0,0 +1,365 @@
+package com.yww.image.service;
+
+import com.yww.image.util.MatScope;
+import com.yww.image.util.PixelBudget;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ *      图片金字塔缓存
+ *      每张图片解码一次后生成逐级缩小一半的金字塔，缩小的层级和最近使用的原图保存在本地内存（Mat）中，
+ *      按占用字节数做LRU淘汰。预览和缩放请求从最接近的层级裁剪，不需要重新解码原图。
+ *      解码前按图片头申请内存预算，只缩小不放大，输出不会超过原图区域的大小
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class PyramidCache {
+
+    /**
+     * 金字塔最小层级的最长边
+     */
+    private static final int MIN_SIDE = 256;
+
+    /**
+     * 金字塔缓存，key为文件路径、大小和修改时间
+     */
+    private final Lru pyramids;
+
+    /**
+     * 原图缓存，原图占用内存大，单独使用较小的预算
+     */
+    private final Lru originals;
+
+    /**
+     * 解码时的内存预算
+     */
+    private final PixelBudget budget;
+
+    /**
+     * 正在解码的图片的锁，同一张图片同时只解码一次
+     */
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * @param pyramidBytes  金字塔缓存的内存上限（字节）
+     * @param originalBytes 原图缓存的内存上限（字节）
+     * @param budget        解码时的内存预算
+     */
+    public PyramidCache(long pyramidBytes, long originalBytes, PixelBudget budget) {
+        this.pyramids = new Lru(pyramidBytes);
+        this.originals = new Lru(originalBytes);
+        this.budget = budget;
+    }
+
+    /**
+     * 获取图片指定区域的缩放结果
+     *
+     * @param filePath  图片路径
+     * @param region    原图坐标下的区域，为null时表示整张图片
+     * @param zoom      相对原图的缩放比例，例如0.25，大于1时按1处理
+     * @return          新的图片矩阵，由调用方释放
+     */
+    public Mat view(String filePath, Rect region, double zoom) {
+        if (zoom <= 0) {
+            throw new IllegalArgumentException("缩放比例必须大于0");
+        }
+        zoom = Math.min(zoom, 1);
+        String key = key(filePath);
+        Entry pyramid = pyramid(key, filePath);
+        try {
+            int width = pyramid.width;
+            int height = pyramid.height;
+            Rect rect = region == null ? new Rect(0, 0, width, height) : clip(region, width, height);
+            Size target = new Size(Math.max(1, Math.round(rect.width * zoom)), Math.max(1, Math.round(rect.height * zoom)));
+
+            // 选择分辨率不低于目标的最小层级，level 0为原图
+            int level = zoom == 1 ? 0 : (int) Math.floor(Math.log(1 / zoom) / Math.log(2));
+            level = Math.min(level, pyramid.mats.size());
+            if (level == 0) {
+                Entry original = original(key, filePath);
+                try {
+                    return crop(original.mats.get(0), rect, 1.0, target);
+                } finally {
+                    original.unref();
+                }
+            }
+            Mat mat = pyramid.mats.get(level - 1);
+            return crop(mat, rect, (double) mat.width() / width, target);
+        } finally {
+            pyramid.unref();
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        pyramids.clear();
+        originals.clear();
+    }
+
+    /**
+     * 缓存占用的本地内存
+     *
+     * @return  字节数
+     */
+    public long bytes() {
+        return pyramids.bytes() + originals.bytes();
+    }
+
+    private Mat crop(Mat mat, Rect rect, double scale, Size target) {
+        int x = (int) Math.floor(rect.x * scale);
+        int y = (int) Math.floor(rect.y * scale);
+        int w = Math.max(1, Math.min(mat.width() - x, (int) Math.ceil(rect.width * scale)));
+        int h = Math.max(1, Math.min(mat.height() - y, (int) Math.ceil(rect.height * scale)));
+        Mat roi = mat.submat(new Rect(x, y, w, h));
+        Mat res = new Mat();
+        int interpolation = target.width < w ? Imgproc.INTER_AREA : Imgproc.INTER_LINEAR;
+        Imgproc.resize(roi, res, target, 0, 0, interpolation);
+        roi.release();
+        return res;
+    }
+
+    /**
+     * 获取金字塔，没有缓存时解码原图并生成，同时缓存原图
+     */
+    @SuppressWarnings("try")
+    private Entry pyramid(String key, String filePath) {
+        return load(key, pyramids, () -> {
+            byte[] bytes = read(filePath);
+            try (PixelBudget.Permit permit = budget.admit(bytes);
+                 MatScope scope = MatScope.open(filePath)) {
+                Mat original = decode(bytes, filePath);
+                List<Mat> levels = new ArrayList<>();
+                Mat current = original;
+                while (Math.max(current.width(), current.height()) > MIN_SIDE) {
+                    Mat next = new Mat();
+                    Imgproc.resize(current, next, new Size(), 0.5, 0.5, Imgproc.INTER_AREA);
+                    scope.track(next);
+                    levels.add(next);
+                    current = next;
+                }
+                // 放入缓存的Mat在作用域关闭后继续使用，出错时由作用域释放
+                levels.forEach(scope::detach);
+                scope.detach(original);
+                Entry entry = new Entry(original.width(), original.height(), levels);
+                pyramids.put(key, entry);
+
+                List<Mat> originalLevel = new ArrayList<>();
+                originalLevel.add(original);
+                Entry originalEntry = new Entry(original.width(), original.height(), originalLevel);
+                originals.put(key, originalEntry);
+                // 创建条目时持有一次引用，put不增加引用；这里不再使用原图，释放创建时的引用，之后由淘汰释放原图
+                originalEntry.unref();
+                return entry;
+            }
+        });
+    }
+
+    /**
+     * 获取原图，没有缓存时重新解码
+     */
+    @SuppressWarnings("try")
+    private Entry original(String key, String filePath) {
+        return load(key, originals, () -> {
+            byte[] bytes = read(filePath);
+            try (PixelBudget.Permit permit = budget.admit(bytes);
+                 MatScope scope = MatScope.open(filePath)) {
+                Mat original = scope.detach(decode(bytes, filePath));
+                List<Mat> levels = new ArrayList<>();
+                levels.add(original);
+                Entry entry = new Entry(original.width(), original.height(), levels);
+                originals.put(key, entry);
+                return entry;
+            }
+        });
+    }
+
+    /**
+     * 从缓存获取条目，没有缓存时加锁生成，同一张图片同时只生成一次
+     */
+    private Entry load(String key, Lru lru, Supplier<Entry> loader) {
+        Entry entry = lru.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        Object lock = locks.computeIfAbsent(key, k -> new Object());
+        try {
+            synchronized (lock) {
+                entry = lru.get(key);
+                return entry != null ? entry : loader.get();
+            }
+        } finally {
+            locks.remove(key, lock);
+        }
+    }
+
+    private static byte[] read(String filePath) {
+        try {
+            return Files.readAllBytes(Paths.get(filePath));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("无法读取图片：" + filePath, e);
+        }
+    }
+
+    /**
+     * 解码图片并登记到当前作用域
+     */
+    private static Mat decode(byte[] bytes, String filePath) {
+        MatOfByte buffer = new MatOfByte(bytes);
+        Mat mat = MatScope.register(Imgcodecs.imdecode(buffer, Imgcodecs.IMREAD_COLOR));
+        buffer.release();
+        if (mat.empty()) {
+            throw new IllegalArgumentException("无法读取图片：" + filePath);
+        }
+        return mat;
+    }
+
+    private static Rect clip(Rect region, int width, int height) {
+        int x = Math.max(0, Math.min(width - 1, region.x));
+        int y = Math.max(0, Math.min(height - 1, region.y));
+        int w = Math.max(1, Math.min(width - x, region.width));
+        int h = Math.max(1, Math.min(height - y, region.height));
+        return new Rect(x, y, w, h);
+    }
+
+    /**
+     * 文件内容变化后key也会变化，旧的缓存会被LRU自然淘汰
+     */
+    private static String key(String filePath) {
+        File file = new File(filePath);
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    /**
+     * 缓存条目，使用引用计数，被淘汰时如果还有请求在使用，等使用完再释放Mat
+     */
+    private static class Entry {
+
+        private final int width;
+
+        private final int height;
+
+        private final List<Mat> mats;
+
+        private final long bytes;
+
+        private int refs = 1;
+
+        private boolean evicted;
+
+        Entry(int width, int height, List<Mat> mats) {
+            this.width = width;
+            this.height = height;
+            this.mats = mats;
+            long sum = 0;
+            for (Mat mat : mats) {
+                sum += mat.total() * mat.elemSize();
+            }
+            this.bytes = sum;
+        }
+
+        synchronized void ref() {
+            refs++;
+        }
+
+        synchronized void unref() {
+            refs--;
+            releaseIfUnused();
+        }
+
+        synchronized void evict() {
+            evicted = true;
+            releaseIfUnused();
+        }
+
+        private void releaseIfUnused() {
+            if (evicted && refs == 0) {
+                for (Mat mat : mats) {
+                    mat.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按字节数淘汰的LRU缓存
+     */
+    private static class Lru {
+
+        private final long maxBytes;
+
+        private final LinkedHashMap<String, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long bytes;
+
+        Lru(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * 获取条目并增加引用，使用完需要调用unref
+         */
+        synchronized Entry get(String key) {
+            Entry entry = map.get(key);
+            if (entry != null) {
+                entry.ref();
+            }
+            return entry;
+        }
+
+        /**
+         * 放入条目，调用方创建条目时持有的引用保持不变
+         */
+        synchronized void put(String key, Entry entry) {
+            Entry old = map.put(key, entry);
+            if (old != null) {
+                bytes -= old.bytes;
+                old.evict();
+            }
+            bytes += entry.bytes;
+            Iterator<Map.Entry<String, Entry>> iterator = map.entrySet().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Entry> eldest = iterator.next();
+                if (eldest.getValue() == entry) {
+                    continue;
+                }
+                iterator.remove();
+                bytes -= eldest.getValue().bytes;
+                eldest.getValue().evict();
+            }
+        }
+
+        synchronized void clear() {
+            for (Entry entry : map.values()) {
+                entry.evict();
+            }
+            map.clear();
+            bytes = 0;
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+
+}
@@ -1,11 +1,20 @@
 package com.yww.image.service;
 
+import com.yww.image.util.DecodePolicy;
+import com.yww.image.util.MatScope;
+import com.yww.image.util.OpencvUtil;
+import com.yww.image.util.PixelKernels;
 import org.opencv.core.Core;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -18,6 +27,16 @@ import java.util.List;
  */
 public class Recognize {
 
+    /**
+     * 定位印章时缩小后图片的最长边
+     */
+    private static final int LOCATE_SIZE = 800;
+
+    /**
+     * 印章区域的最小置信度
+     */
+    private static final double MIN_CONFIDENCE = 0.3;
+
     /**
      * 遍历红色像素，根据像素数量判断是否存在红色印章
      *
@@ -25,30 +44,48 @@ public class Recognize {
      * @return              true表示可能存在红色印章
      */
     public static Boolean recognizeRed(String filePath) {
-        Mat mat = Imgcodecs.imread(filePath);
+        return recognizeRed(filePath, DecodePolicy.of(DecodePolicy.Operation.RED));
+    }
+
+    /**
+     * 遍历红色像素，根据像素数量判断是否存在红色印章
+     * 缩小读取时，像素数量阈值按面积换算
+     *
+     * @param filePath      图片路径
+     * @param policy        解码策略
+     * @return              true表示可能存在红色印章
+     */
+    public static Boolean recognizeRed(String filePath, DecodePolicy policy) {
+        Mat mat = policy.readColor(filePath);
+        boolean res = recognizeRed(mat, policy.getFactor());
+        mat.release();
+        return res;
+    }
+
+    /**
+     * 遍历红色像素，根据像素数量判断是否存在红色印章
+     *
+     * @param mat           图片矩阵（BGR）
+     * @param factor        图片相对原图的缩小倍数，像素数量阈值按面积换算
+     * @return              true表示可能存在红色印章
+     */
+    public static boolean recognizeRed(Mat mat, int factor) {
         // 转为HSV空间
         Mat hsv = new Mat();
         Imgproc.cvtColor(mat, hsv, Imgproc.COLOR_BGR2HSV);
-        int nums = 0;
-
-        for (int i = 0; i < hsv.rows(); i++) {
-            for (int j = 0; j < hsv.cols(); j++) {
-                double[] clone = hsv.get(i, j).clone();
-                double h = clone[0];
-                double s = clone[1];
-                double v = clone[2];
-                // 红色的hsv范围判断
-                if ((h > 0 && h < 10) || (h > 156 && h < 180)) {
-                    if (s > 43 && s < 255) {
-                        if (v < 255 && v > 46) {
-                            nums++;
-                        }
-                    }
-                }
-
-            }
+        MatScope.register(hsv);
+        // 拆分为H、S、V三个通道，各自拷贝到数组后统计红色范围内的像素
+        List<Mat> channels = new ArrayList<>();
+        Core.split(hsv, channels);
+        hsv.release();
+        int total = (int) mat.total();
+        byte[][] planes = new byte[3][total];
+        for (int i = 0; i < 3; i++) {
+            channels.get(i).get(0, 0, planes[i]);
+            channels.get(i).release();
         }
-        return nums > 8000;
+        int nums = PixelKernels.countRed(planes[0], planes[1], planes[2], total);
+        return nums > 8000 / (factor * factor);
     }
 
     /**
@@ -69,7 +106,163 @@ public class Recognize {
         Mat redThresh = new Mat();
         Imgproc.threshold(red, redThresh, 120, 255, Imgproc.THRESH_BINARY);
 
-        Imgcodecs.imwrite(dst, redThresh);
+        OpencvUtil.writeImage(redThresh, dst);
+    }
+
+    /**
+     * 去除红色印章，只在定位到的印章区域内处理，其他区域保持原样
+     *
+     * @param filePath  图片路径
+     * @param dst       去除后图片保存地址
+     */
+    public static void removeRedStamp(String filePath, String dst) {
+        Mat mat = Imgcodecs.imread(filePath);
+        removeRed(mat, locateRed(mat));
+        OpencvUtil.writeImage(mat, dst);
+        mat.release();
+    }
+
+    /**
+     * 定位红色印章
+     * 在缩小后的HSV图片上提取红色掩码，闭运算连接印章笔画后求连通域，
+     * 返回原图坐标下的印章区域，按置信度从高到低排序
+     *
+     * @param mat   图片矩阵（BGR）
+     * @return      印章区域
+     */
+    public static List<Stamp> locateRed(Mat mat) {
+        List<Stamp> res = new ArrayList<>();
+        if (mat.empty()) {
+            return res;
+        }
+        // 缩小图片
+        double scale = Math.min(1.0, (double) LOCATE_SIZE / Math.max(mat.width(), mat.height()));
+        Mat small = new Mat();
+        Imgproc.resize(mat, small, new Size(), scale, scale, Imgproc.INTER_AREA);
+
+        // 红色掩码，闭运算把印章的边框和文字连成一块
+        Mat mask = redMask(small);
+        Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(7, 7));
+        Imgproc.morphologyEx(mask, mask, Imgproc.MORPH_CLOSE, kernel);
+
+        // 连通域
+        Mat labels = new Mat();
+        Mat stats = new Mat();
+        Mat centroids = new Mat();
+        int count = Imgproc.connectedComponentsWithStats(mask, labels, stats, centroids, 8, CvType.CV_32S);
+
+        // 印章大约占A4纸面积的1%，以此作为尺寸的参考
+        double expectArea = small.total() * 0.01;
+        int[] stat = new int[5];
+        for (int i = 1; i < count; i++) {
+            stats.get(i, 0, stat);
+            int x = stat[Imgproc.CC_STAT_LEFT];
+            int y = stat[Imgproc.CC_STAT_TOP];
+            int width = stat[Imgproc.CC_STAT_WIDTH];
+            int height = stat[Imgproc.CC_STAT_HEIGHT];
+            int area = stat[Imgproc.CC_STAT_AREA];
+            if (area < 30) {
+                continue;
+            }
+            // 印章一般是圆形或方形，宽高比接近1，尺寸越接近参考面积越可信
+            // 两项相乘，宽高比再好的小色块也会因为尺寸过小被排除
+            double aspect = (double) Math.min(width, height) / Math.max(width, height);
+            double size = Math.min(1.0, (double) width * height / expectArea);
+            double confidence = aspect * size;
+            if (confidence < MIN_CONFIDENCE) {
+                continue;
+            }
+            // 映射回原图坐标，四周留出少量余量
+            int pad = 2;
+            int left = Math.max(0, (int) Math.floor((x - pad) / scale));
+            int top = Math.max(0, (int) Math.floor((y - pad) / scale));
+            int right = Math.min(mat.width(), (int) Math.ceil((x + width + pad) / scale));
+            int bottom = Math.min(mat.height(), (int) Math.ceil((y + height + pad) / scale));
+            res.add(new Stamp(new Rect(left, top, right - left, bottom - top), confidence));
+        }
+        res.sort(Comparator.comparingDouble(Stamp::getConfidence).reversed());
+
+        small.release();
+        mask.release();
+        kernel.release();
+        labels.release();
+        stats.release();
+        centroids.release();
+        return res;
+    }
+
+    /**
+     * 在原图的印章区域内把红色像素替换为白色，直接修改传入的图片
+     *
+     * @param mat       图片矩阵（BGR）
+     * @param stamps    印章区域
+     */
+    public static void removeRed(Mat mat, List<Stamp> stamps) {
+        Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(3, 3));
+        for (Stamp stamp : stamps) {
+            Mat roi = mat.submat(stamp.getRect());
+            Mat mask = redMask(roi);
+            // 稍微膨胀，去掉印章边缘的过渡色
+            Imgproc.dilate(mask, mask, kernel);
+            roi.setTo(new Scalar(255, 255, 255), mask);
+            mask.release();
+            roi.release();
+        }
+        kernel.release();
+    }
+
+    /**
+     * 红色掩码，HSV范围与 {@link #recognizeRed(String)} 一致
+     * inRange的上下界都包含在内，这里按recognizeRed的开区间换算为闭区间：H 1~9或157~179，S 44~254，V 47~254
+     *
+     * @param mat   图片矩阵（BGR）
+     * @return      单通道掩码，红色为255
+     */
+    private static Mat redMask(Mat mat) {
+        Mat hsv = new Mat();
+        Imgproc.cvtColor(mat, hsv, Imgproc.COLOR_BGR2HSV);
+        Mat low = new Mat();
+        Mat high = new Mat();
+        Core.inRange(hsv, new Scalar(1, 44, 47), new Scalar(9, 254, 254), low);
+        Core.inRange(hsv, new Scalar(157, 44, 47), new Scalar(179, 254, 254), high);
+        Core.bitwise_or(low, high, low);
+        hsv.release();
+        high.release();
+        return low;
+    }
+
+    /**
+     * 印章区域
+     */
+    public static class Stamp {
+
+        /**
+         * 原图坐标下的外接矩形
+         */
+        private final Rect rect;
+
+        /**
+         * 置信度，0到1
+         */
+        private final double confidence;
+
+        public Stamp(Rect rect, double confidence) {
+            this.rect = rect;
+            this.confidence = confidence;
+        }
+
+        public Rect getRect() {
+            return rect;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public String toString() {
+            return "Stamp{rect=" + rect + ", confidence=" + confidence + "}";
+        }
     }
 
 }
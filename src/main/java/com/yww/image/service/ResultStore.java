@@ -0,0 +1,748 @@
+package com.yww.image.service;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ *      分析结果存储
+ *      只追加写入的定长记录（128字节），按段文件保存，每条记录带CRC32校验，
+ *      读取时使用内存映射，按图片内容哈希建立内存索引，支持按内容查询和全量扫描。
+ *      重启时校验所有记录，最后一段末尾写了一半的记录会被截掉
+ * </p>
+ * <pre>
+ *  记录格式（小端）：
+ *  0   内容哈希（SHA-256前16字节）
+ *  16  写入时间（毫秒）
+ *  24  宽、高（int）
+ *  32  倾斜角、倾斜角置信度、清晰度、亮度（double）
+ *  64  标志（第0位为红章）、名称长度、保留2字节
+ *  68  名称（UTF-8，最多56字节，超出截断）
+ *  124 CRC32（前124字节）
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class ResultStore implements Closeable {
+
+    /**
+     * 记录大小
+     */
+    public static final int RECORD_SIZE = 128;
+
+    /**
+     * 每段最多保存的记录数，每段128MB
+     */
+    private static final int SEGMENT_RECORDS = 1 << 20;
+
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * 段文件第一次扩展的记录数，之后每次翻倍，直到每段的上限
+     */
+    private static final int MIN_RESERVE = 8192;
+
+    private static final int MAGIC = 0x49525331;
+
+    private static final int NAME_OFFSET = 68;
+
+    private static final int NAME_SIZE = 56;
+
+    private static final int CRC_OFFSET = 124;
+
+    /**
+     * 打开时每次读取校验的记录数
+     */
+    private static final int VALIDATE_RECORDS = 8192;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final File dir;
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final HashIndex index = new HashIndex();
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private long corrupt;
+
+    /**
+     * 打开存储目录，不存在时自动创建
+     *
+     * @param dirPath   存储目录
+     */
+    public ResultStore(String dirPath) {
+        this.dir = FileUtil.mkdir(dirPath);
+        try {
+            File[] files = dir.listFiles((d, name) -> name.startsWith("segment-") && name.endsWith(".dat"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (int i = 0; i < files.length; i++) {
+                    segments.add(open(files[i], i == files.length - 1));
+                }
+            }
+            if (segments.isEmpty()) {
+                segments.add(create(0));
+            }
+        } catch (IOException e) {
+            close();
+            throw new RuntimeException("打开分析结果存储出错！", e);
+        }
+    }
+
+    /**
+     * 保存图片的分析结果
+     *
+     * @param content   图片文件内容，用于计算哈希
+     * @param result    分析结果
+     */
+    public void append(byte[] content, Analysis.Result result) {
+        byte[] hash = Arrays.copyOf(DigestUtil.sha256(content), 16);
+        append(new Record(hash, System.currentTimeMillis(), result));
+    }
+
+    /**
+     * 保存记录
+     *
+     * @param record    记录
+     */
+    public void append(Record record) {
+        lock.writeLock().lock();
+        try {
+            Segment segment = segments.get(segments.size() - 1);
+            if (segment.count >= SEGMENT_RECORDS) {
+                segment.seal();
+                segment = create(segments.size());
+                segments.add(segment);
+            }
+            segment.reserve();
+            writeBuffer.clear();
+            record.write(writeBuffer);
+            writeBuffer.flip();
+            long position = HEADER_SIZE + (long) segment.count * RECORD_SIZE;
+            while (writeBuffer.hasRemaining()) {
+                position += segment.channel.write(writeBuffer, position);
+            }
+            index.put(record.hash, address(segments.size() - 1, segment.count));
+            segment.count++;
+        } catch (IOException e) {
+            throw new RuntimeException("写入分析结果出错！", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 把已写入的记录刷到磁盘
+     */
+    public void sync() {
+        lock.writeLock().lock();
+        try {
+            segments.get(segments.size() - 1).channel.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("写入分析结果出错！", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按图片内容查询最近一次的分析结果
+     *
+     * @param content   图片文件内容
+     * @return          记录，没有时返回null
+     */
+    public Record get(byte[] content) {
+        return getByHash(Arrays.copyOf(DigestUtil.sha256(content), 16));
+    }
+
+    /**
+     * 按内容哈希查询最近一次的分析结果
+     *
+     * @param hash      SHA-256前16字节
+     * @return          记录，没有时返回null
+     */
+    public Record getByHash(byte[] hash) {
+        lock.readLock().lock();
+        try {
+            long address = index.get(hash);
+            if (address < 0) {
+                return null;
+            }
+            Cursor cursor = new Cursor();
+            cursor.move(segments.get((int) (address >>> 32)).view(), (int) address);
+            return cursor.toRecord();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按写入顺序扫描所有记录，CRC校验失败的记录跳过
+     * 游标在回调中复用，只在需要时调用 {@link Cursor#toRecord()} 生成记录
+     *
+     * @param consumer  游标回调
+     */
+    public void scan(Consumer<Cursor> consumer) {
+        lock.readLock().lock();
+        try {
+            Cursor cursor = new Cursor();
+            CRC32 crc = new CRC32();
+            for (Segment segment : segments) {
+                ByteBuffer view = segment.view();
+                for (int i = 0; i < segment.count; i++) {
+                    cursor.move(view, i);
+                    if (cursor.verify(crc)) {
+                        consumer.accept(cursor);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询满足条件的记录，例如 {@code store.select(c -> c.getClarity() < 100)}
+     *
+     * @param filter    条件
+     * @return          记录
+     */
+    public List<Record> select(Predicate<Cursor> filter) {
+        List<Record> res = new ArrayList<>();
+        scan(cursor -> {
+            if (filter.test(cursor)) {
+                res.add(cursor.toRecord());
+            }
+        });
+        return res;
+    }
+
+    /**
+     * 记录总数
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            long sum = 0;
+            for (Segment segment : segments) {
+                sum += segment.count;
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 打开时发现的损坏记录数（不含末尾被截掉的记录）
+     */
+    public long getCorrupt() {
+        return corrupt;
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments) {
+                try {
+                    segment.trim();
+                    segment.channel.close();
+                } catch (IOException e) {
+                    // 关闭时忽略
+                }
+            }
+            segments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long address(int segment, int record) {
+        return ((long) segment << 32) | record;
+    }
+
+    /**
+     * 创建段文件，先把文件头写入临时文件再改名，崩溃时不会留下没有文件头的段文件
+     */
+    private Segment create(int number) throws IOException {
+        File file = new File(dir, String.format("segment-%06d.dat", number));
+        if (file.exists()) {
+            throw new IOException("段文件已存在：" + file);
+        }
+        Path temp = new File(dir, file.getName() + ".tmp").toPath();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(channel);
+        }
+        Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(channel, 0);
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(RECORD_SIZE).putInt(SEGMENT_RECORDS).putInt(0).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+
+    /**
+     * 打开段文件并校验记录，建立索引
+     * 最后一段末尾不完整或校验失败的记录视为写入时崩溃，直接截掉；最后一段连文件头都不完整时视为空段，重写文件头。
+     * 先用按位置读取校验并截断，再做内存映射，映射存在时部分系统（Windows）不允许截断文件
+     */
+    private Segment open(File file, boolean last) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (last && channel.size() < HEADER_SIZE) {
+                channel.truncate(0);
+                writeHeader(channel);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != RECORD_SIZE) {
+                throw new IOException("不是分析结果存储文件：" + file);
+            }
+            int count = (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+            boolean[] valid = validate(channel, count);
+            int end = count;
+            if (last) {
+                while (end > 0 && !valid[end - 1]) {
+                    end--;
+                }
+                if (channel.size() != HEADER_SIZE + (long) end * RECORD_SIZE) {
+                    channel.truncate(HEADER_SIZE + (long) end * RECORD_SIZE);
+                }
+            }
+            Segment segment = new Segment(channel, end);
+            ByteBuffer view = segment.view();
+            Cursor cursor = new Cursor();
+            int number = segments.size();
+            for (int i = 0; i < end; i++) {
+                if (valid[i]) {
+                    cursor.move(view, i);
+                    index.put(cursor.hash(), address(number, i));
+                } else {
+                    corrupt++;
+                }
+            }
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 按位置分块读取并校验每条记录的CRC，不做内存映射
+     */
+    private static boolean[] validate(FileChannel channel, int count) throws IOException {
+        boolean[] valid = new boolean[count];
+        ByteBuffer chunk = ByteBuffer.allocate(VALIDATE_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        Cursor cursor = new Cursor();
+        CRC32 crc = new CRC32();
+        for (int first = 0; first < count; first += VALIDATE_RECORDS) {
+            int records = Math.min(VALIDATE_RECORDS, count - first);
+            chunk.clear().limit(records * RECORD_SIZE);
+            long position = HEADER_SIZE + (long) first * RECORD_SIZE;
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, position + chunk.position()) < 0) {
+                    throw new IOException("读取分析结果出错！");
+                }
+            }
+            for (int i = 0; i < records; i++) {
+                cursor.moveTo(chunk, i * RECORD_SIZE);
+                valid[first + i] = cursor.verify(crc);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * 段文件
+     */
+    private static class Segment {
+
+        private final FileChannel channel;
+
+        private int count;
+
+        /**
+         * 文件中可以容纳的记录数，文件按倍数预先扩展，映射只在扩展后重新建立
+         */
+        private int capacity;
+
+        /**
+         * 只读映射，覆盖整个文件，追加的记录通过页缓存直接可见
+         */
+        private MappedByteBuffer mapped;
+
+        private int mappedCapacity = -1;
+
+        Segment(FileChannel channel, int count) {
+            this.channel = channel;
+            this.count = count;
+            this.capacity = count;
+        }
+
+        /**
+         * 文件已写满时扩展为两倍，最多到每段的上限
+         * 只写入新的最后一个字节，扩展部分读出为0，CRC校验不通过，崩溃后打开时作为末尾不完整的记录截掉
+         */
+        void reserve() throws IOException {
+            if (count < capacity) {
+                return;
+            }
+            int next = Math.min(SEGMENT_RECORDS, Math.max(MIN_RESERVE, capacity * 2));
+            ByteBuffer last = ByteBuffer.allocate(1);
+            while (last.hasRemaining()) {
+                channel.write(last, HEADER_SIZE + (long) next * RECORD_SIZE - 1);
+            }
+            capacity = next;
+        }
+
+        /**
+         * 截掉预先扩展但没有写入的部分，部分系统（Windows）存在映射时不允许截断，此时留给下次打开时截掉
+         */
+        void trim() {
+            long size = HEADER_SIZE + (long) count * RECORD_SIZE;
+            try {
+                if (channel.size() > size) {
+                    channel.truncate(size);
+                }
+            } catch (IOException e) {
+                // 下次打开时截掉
+            }
+        }
+
+        /**
+         * 覆盖所有已写入记录的只读视图
+         */
+        synchronized ByteBuffer view() {
+            if (mapped == null || mappedCapacity != capacity) {
+                try {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+                } catch (IOException e) {
+                    throw new RuntimeException("读取分析结果出错！", e);
+                }
+                mappedCapacity = capacity;
+            }
+            return mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void seal() throws IOException {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * 记录游标，直接从映射的缓冲区读取字段
+     */
+    public static class Cursor {
+
+        private ByteBuffer buffer;
+
+        private int offset;
+
+        void move(ByteBuffer buffer, int record) {
+            moveTo(buffer, HEADER_SIZE + record * RECORD_SIZE);
+        }
+
+        void moveTo(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        boolean verify(CRC32 crc) {
+            crc.reset();
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(offset + CRC_OFFSET).position(offset);
+            crc.update(slice);
+            return (int) crc.getValue() == buffer.getInt(offset + CRC_OFFSET);
+        }
+
+        byte[] hash() {
+            byte[] hash = new byte[16];
+            for (int i = 0; i < hash.length; i++) {
+                hash[i] = buffer.get(offset + i);
+            }
+            return hash;
+        }
+
+        public long getTimestamp() {
+            return buffer.getLong(offset + 16);
+        }
+
+        public int getWidth() {
+            return buffer.getInt(offset + 24);
+        }
+
+        public int getHeight() {
+            return buffer.getInt(offset + 28);
+        }
+
+        public double getAngle() {
+            return buffer.getDouble(offset + 32);
+        }
+
+        public double getAngleConfidence() {
+            return buffer.getDouble(offset + 40);
+        }
+
+        public double getClarity() {
+            return buffer.getDouble(offset + 48);
+        }
+
+        public double getBrightness() {
+            return buffer.getDouble(offset + 56);
+        }
+
+        public boolean isRed() {
+            return (buffer.get(offset + 64) & 1) != 0;
+        }
+
+        /**
+         * 生成记录对象
+         */
+        public Record toRecord() {
+            Record record = new Record();
+            record.hash = hash();
+            record.timestamp = getTimestamp();
+            record.width = getWidth();
+            record.height = getHeight();
+            record.angle = getAngle();
+            record.angleConfidence = getAngleConfidence();
+            record.clarity = getClarity();
+            record.brightness = getBrightness();
+            record.red = isRed();
+            byte[] name = new byte[buffer.get(offset + 65) & 0xff];
+            for (int i = 0; i < name.length; i++) {
+                name[i] = buffer.get(offset + NAME_OFFSET + i);
+            }
+            record.name = new String(name, StandardCharsets.UTF_8);
+            return record;
+        }
+    }
+
+    /**
+     * 分析结果记录
+     */
+    public static class Record {
+
+        private byte[] hash;
+
+        private long timestamp;
+
+        private String name;
+
+        private int width;
+
+        private int height;
+
+        private double angle;
+
+        private double angleConfidence;
+
+        private double clarity;
+
+        private double brightness;
+
+        private boolean red;
+
+        private Record() {
+        }
+
+        /**
+         * @param hash      内容哈希，SHA-256前16字节
+         * @param timestamp 写入时间
+         * @param result    分析结果
+         */
+        public Record(byte[] hash, long timestamp, Analysis.Result result) {
+            if (hash.length != 16) {
+                throw new IllegalArgumentException("内容哈希必须为16字节");
+            }
+            this.hash = hash;
+            this.timestamp = timestamp;
+            this.name = result.getName() == null ? "" : result.getName();
+            this.width = result.getWidth();
+            this.height = result.getHeight();
+            this.angle = result.getAngle();
+            this.angleConfidence = result.getAngleConfidence();
+            this.clarity = result.getClarity();
+            this.brightness = result.getBrightness();
+            this.red = result.isRed();
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.put(hash);
+            buffer.putLong(timestamp);
+            buffer.putInt(width).putInt(height);
+            buffer.putDouble(angle).putDouble(angleConfidence).putDouble(clarity).putDouble(brightness);
+            byte[] bytes = truncate(name.getBytes(StandardCharsets.UTF_8));
+            buffer.put((byte) (red ? 1 : 0)).put((byte) bytes.length).putShort((short) 0);
+            buffer.put(bytes);
+            buffer.position(CRC_OFFSET);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, CRC_OFFSET);
+            buffer.putInt((int) crc.getValue());
+        }
+
+        /**
+         * 按UTF-8字符边界截断到NAME_SIZE字节
+         */
+        private static byte[] truncate(byte[] bytes) {
+            if (bytes.length <= NAME_SIZE) {
+                return bytes;
+            }
+            int end = NAME_SIZE;
+            while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+                end--;
+            }
+            return Arrays.copyOf(bytes, end);
+        }
+
+        public String getHash() {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * 图片名称，超过56字节时被截断
+         */
+        public String getName() {
+            return name;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public double getAngle() {
+            return angle;
+        }
+
+        public double getAngleConfidence() {
+            return angleConfidence;
+        }
+
+        public double getClarity() {
+            return clarity;
+        }
+
+        public double getBrightness() {
+            return brightness;
+        }
+
+        public boolean isRed() {
+            return red;
+        }
+    }
+
+    /**
+     * 内容哈希索引，开放寻址，key为哈希的前16字节，value为记录地址（段号 << 32 | 记录号）
+     */
+    private static class HashIndex {
+
+        private long[] keys = new long[2 * 1024];
+
+        private long[] values = new long[1024];
+
+        private boolean[] used = new boolean[1024];
+
+        private int size;
+
+        void put(byte[] hash, long value) {
+            if (size * 2 >= used.length) {
+                grow();
+            }
+            long hi = ByteBuffer.wrap(hash, 0, 8).getLong();
+            long lo = ByteBuffer.wrap(hash, 8, 8).getLong();
+            insert(hi, lo, value);
+        }
+
+        long get(byte[] hash) {
+            long hi = ByteBuffer.wrap(hash, 0, 8).getLong();
+            long lo = ByteBuffer.wrap(hash, 8, 8).getLong();
+            int mask = used.length - 1;
+            for (int i = (int) (hi ^ lo) & mask; used[i]; i = (i + 1) & mask) {
+                if (keys[2 * i] == hi && keys[2 * i + 1] == lo) {
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        private void insert(long hi, long lo, long value) {
+            int mask = used.length - 1;
+            int i = (int) (hi ^ lo) & mask;
+            while (used[i]) {
+                if (keys[2 * i] == hi && keys[2 * i + 1] == lo) {
+                    // 相同内容保留最新的记录
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[2 * i] = hi;
+            keys[2 * i + 1] = lo;
+            values[i] = value;
+            size++;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldValues.length * 2];
+            used = new boolean[oldUsed.length * 2];
+            size = 0;
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (oldUsed[i]) {
+                    insert(oldKeys[2 * i], oldKeys[2 * i + 1], oldValues[i]);
+                }
+            }
+        }
+    }
+
+}
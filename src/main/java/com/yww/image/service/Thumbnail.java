@@ -0,0 +1,157 @@
+package com.yww.image.service;
+
+import cn.hutool.core.io.FileUtil;
+import com.yww.image.util.DecodePolicy;
+import com.yww.image.util.EncoderProfile;
+import com.yww.image.util.ImageUtil;
+import com.yww.image.util.OpencvUtil;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ *      缩略图生成
+ *      先只读取图片头获取宽高，按最大的目标尺寸选择IMREAD_REDUCED_*解码（JPEG在DCT阶段缩小），
+ *      一次解码生成多个尺寸，从大到小依次用INTER_AREA从上一个尺寸缩小。
+ *      解码时不忽略EXIF方向，OpenCV会按方向旋转图片
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class Thumbnail {
+
+    /**
+     * 生成缩略图，保存为 {@code <dstDir>/<文件名>_<宽度>.jpg}
+     *
+     * @param src       图片路径
+     * @param dstDir    输出目录
+     * @param widths    缩略图宽度，可以有多个
+     * @return          缩略图路径，按宽度从大到小
+     */
+    public static List<String> thumbnail(String src, String dstDir, int... widths) {
+        Map<Integer, Mat> thumbnails = thumbnails(src, widths);
+        List<String> res = new ArrayList<>();
+        String name = FileUtil.mainName(src);
+        try {
+            for (Map.Entry<Integer, Mat> entry : thumbnails.entrySet()) {
+                String path = dstDir + File.separator + name + "_" + entry.getKey() + "." + EncoderProfile.JPEG_Q85.getExt();
+                OpencvUtil.saveImage(entry.getValue(), path, EncoderProfile.JPEG_Q85);
+                res.add(path);
+            }
+        } finally {
+            for (Mat mat : thumbnails.values()) {
+                mat.release();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * 生成缩略图，一次解码得到多个尺寸
+     *
+     * @param src       图片路径
+     * @param widths    缩略图宽度，可以有多个
+     * @return          宽度 -> 缩略图矩阵，按宽度从大到小，由调用方释放
+     */
+    public static Map<Integer, Mat> thumbnails(String src, int... widths) {
+        if (widths.length == 0) {
+            throw new IllegalArgumentException("缩略图宽度不能为空");
+        }
+        int[] sorted = Arrays.stream(widths).distinct().sorted().toArray();
+        if (sorted[0] <= 0) {
+            throw new IllegalArgumentException("缩略图宽度必须大于0");
+        }
+        int maxWidth = sorted[sorted.length - 1];
+
+        // 按EXIF方向旋转后的宽度选择缩小倍数，缩小后的宽度不能小于最大的目标宽度
+        int[] size = ImgInfo.getHeaderResolution(src);
+        int width = isTransposed(src) ? size[1] : size[0];
+        DecodePolicy policy = DecodePolicy.forFactor(Math.max(1, width / maxWidth));
+        Mat decoded = policy.readColor(src);
+        if (decoded.empty()) {
+            throw new RuntimeException("无法读取图片：" + src);
+        }
+
+        Map<Integer, Mat> res = new LinkedHashMap<>();
+        Mat current = decoded;
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            int target = sorted[i];
+            Mat next;
+            if (target >= current.width()) {
+                // 不放大，图片比目标小时直接使用
+                next = current.clone();
+            } else {
+                int height = Math.max(1, (int) Math.round((double) current.height() * target / current.width()));
+                next = new Mat();
+                Imgproc.resize(current, next, new Size(target, height), 0, 0, Imgproc.INTER_AREA);
+            }
+            res.put(target, next);
+            // 下一个尺寸从当前尺寸缩小
+            current = next;
+        }
+        decoded.release();
+        return res;
+    }
+
+    /**
+     * 批量并行生成缩略图
+     *
+     * @param files     图片路径
+     * @param dstDir    输出目录
+     * @param threads   线程数
+     * @param widths    缩略图宽度
+     * @return          失败的图片路径 -> 失败原因
+     */
+    public static Map<String, Throwable> batch(List<String> files, String dstDir, int threads, int... widths) {
+        FileUtil.mkdir(dstDir);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        try {
+            Map<String, Future<List<String>>> futures = new LinkedHashMap<>();
+            for (String file : files) {
+                futures.put(file, executor.submit(() -> thumbnail(file, dstDir, widths)));
+            }
+            for (Map.Entry<String, Future<List<String>>> entry : futures.entrySet()) {
+                try {
+                    entry.getValue().get();
+                } catch (ExecutionException e) {
+                    failures.put(entry.getKey(), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("生成缩略图被中断");
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+
+    /**
+     * EXIF方向为90或270度时，显示的宽高与图片头中的宽高相反
+     */
+    private static boolean isTransposed(String src) {
+        int angle;
+        try {
+            angle = ImageUtil.getAngle(FileUtil.file(src));
+        } catch (Exception e) {
+            // 没有EXIF信息
+            angle = 0;
+        }
+        return angle == 90 || angle == 270;
+    }
+
+}
@@ -0,0 +1,428 @@
+package com.yww.image.service;
+
+import com.yww.image.util.MatScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ *      收件目录增量处理
+ *      使用WatchService监听收件目录的新文件，文件大小和修改时间在一段时间内不再变化才认为写入完成，
+ *      处理完成后把文件名、大小和修改时间追加到本地清单文件。
+ *      启动时先读取清单，再以流的方式遍历目录，只处理清单中没有的文件；
+ *      同名文件被覆盖后大小或修改时间变化，会重新处理。事件溢出时重新遍历目录
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class WatchIngest implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(WatchIngest.class);
+
+    private final Path inbox;
+
+    private final Path manifest;
+
+    private final Consumer<Path> processor;
+
+    private final long stableMillis;
+
+    private final long pollMillis;
+
+    /**
+     * 已完成的文件，格式为 文件名\t大小\t修改时间
+     */
+    private final Set<String> done = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 等待写入完成的文件，值为上次检查时的状态
+     */
+    private final Map<Path, FileState> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 已提交处理、尚未完成的文件，值为提交时的清单记录
+     */
+    private final Map<Path, String> inFlight = new ConcurrentHashMap<>();
+
+    private final ExecutorService workers;
+
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor();
+
+    private final AtomicLong processed = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private BufferedWriter writer;
+
+    private WatchService watcher;
+
+    private Thread thread;
+
+    /**
+     * @param inbox         收件目录
+     * @param manifest      清单文件
+     * @param processor     单个文件的处理操作
+     * @param stableMillis  文件多长时间没有变化认为写入完成（毫秒）
+     * @param pollMillis    检查写入是否完成的间隔（毫秒）
+     * @param threads       处理线程数
+     */
+    public WatchIngest(String inbox, String manifest, Consumer<Path> processor,
+                       long stableMillis, long pollMillis, int threads) {
+        this.inbox = Paths.get(inbox);
+        this.manifest = Paths.get(manifest).toAbsolutePath().normalize();
+        this.processor = processor;
+        this.stableMillis = stableMillis;
+        this.pollMillis = pollMillis;
+        this.workers = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * 读取清单，注册监听后遍历目录，启动监听线程和写入完成检查
+     * 先注册再遍历，遍历期间新建的文件不会漏掉，重复发现的文件只会处理一次
+     */
+    public void start() {
+        try {
+            Files.createDirectories(inbox);
+            Path parent = manifest.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            loadManifest();
+            writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(manifest,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8));
+            watcher = inbox.getFileSystem().newWatchService();
+            inbox.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new RuntimeException("启动收件目录监听出错！", e);
+        }
+        scan();
+        checker.scheduleWithFixedDelay(this::checkPending, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        thread = new Thread(this, "watch-ingest");
+        thread.start();
+    }
+
+    /**
+     * 停止监听，等待正在处理的文件处理完成
+     */
+    public void stop() {
+        try {
+            if (watcher != null) {
+                watcher.close();
+            }
+        } catch (IOException e) {
+            // 关闭时忽略
+        }
+        if (thread != null) {
+            try {
+                thread.join(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checker.shutdownNow();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                // 关闭时忽略
+            }
+        }
+    }
+
+    /**
+     * 监听线程，单次事件处理出错只记录日志，不结束监听
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                try {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scan();
+                            continue;
+                        }
+                        Path file = inbox.resolve((Path) event.context());
+                        if (!ignored(file)) {
+                            // 文件还在写入时会不断收到修改事件，重新开始计时
+                            pending.put(file, FileState.UNKNOWN);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // 遍历失败时等下一次事件溢出或检查出错时重新遍历
+                    log.warn("处理收件目录事件出错：{}", inbox, e);
+                }
+                if (!key.reset()) {
+                    log.error("收件目录已不可访问，停止监听：{}", inbox);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 停止监听
+        }
+    }
+
+    /**
+     * 以流的方式遍历收件目录，把清单中没有的文件加入等待队列
+     * 每个文件只读取一次属性，不排序也不把目录列表整个放进内存
+     */
+    private void scan() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inbox)) {
+            for (Path file : stream) {
+                if (ignored(file)) {
+                    continue;
+                }
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (!attrs.isRegularFile()) {
+                    continue;
+                }
+                // 正在处理的文件也加入等待队列，处理期间被修改时等处理完成后再处理新内容
+                FileState state = new FileState(attrs);
+                if (!done.contains(state.key(file))) {
+                    pending.putIfAbsent(file, state);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("读取收件目录出错！", e);
+        }
+    }
+
+    /**
+     * 检查等待中的文件，两次检查之间大小和修改时间都没有变化，且最后修改已超过stableMillis，才提交处理
+     * 定时任务抛出异常后不会再执行，所以出错时只记录日志并重新遍历目录
+     */
+    private void checkPending() {
+        try {
+            submitStable();
+        } catch (RuntimeException e) {
+            log.warn("检查收件目录出错，重新遍历：{}", inbox, e);
+            try {
+                scan();
+            } catch (RuntimeException ex) {
+                log.warn("遍历收件目录出错：{}", inbox, ex);
+            }
+        }
+    }
+
+    private void submitStable() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, FileState>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, FileState> entry = it.next();
+            Path file = entry.getKey();
+            FileState current;
+            try {
+                current = new FileState(Files.readAttributes(file, BasicFileAttributes.class));
+            } catch (IOException e) {
+                // 文件已被删除或移走
+                it.remove();
+                continue;
+            }
+            if (!current.equals(entry.getValue()) || now - current.modified < stableMillis) {
+                entry.setValue(current);
+                continue;
+            }
+            String key = current.key(file);
+            if (done.contains(key)) {
+                it.remove();
+                continue;
+            }
+            String running = inFlight.putIfAbsent(file, key);
+            if (running != null) {
+                // 正在处理相同的内容时不再提交；处理期间文件又被修改过，保留在等待队列中，处理完成后再提交
+                if (running.equals(key)) {
+                    it.remove();
+                }
+                continue;
+            }
+            it.remove();
+            try {
+                workers.execute(() -> process(file, key));
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(file);
+                pending.putIfAbsent(file, current);
+                throw e;
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    private void process(Path file, String key) {
+        // 处理过程中登记的Mat计入本地内存统计，处理完成后释放
+        try (MatScope scope = MatScope.open(file.toString())) {
+            processor.accept(file);
+            record(key);
+            processed.incrementAndGet();
+        } catch (RuntimeException e) {
+            // 处理失败不写入清单，文件再次修改或重启后重试
+            failed.incrementAndGet();
+            log.warn("处理文件出错：{}", file, e);
+        } finally {
+            inFlight.remove(file);
+        }
+    }
+
+    /**
+     * 把完成的文件追加到清单并刷到磁盘
+     */
+    private synchronized void record(String key) {
+        try {
+            writer.write(key);
+            writer.write('\n');
+            writer.flush();
+            done.add(key);
+        } catch (IOException e) {
+            throw new RuntimeException("写入处理清单出错！", e);
+        }
+    }
+
+    /**
+     * 读取清单，写了一半的最后一行补上换行，避免与下一条记录连在一起
+     */
+    private void loadManifest() throws IOException {
+        if (!Files.exists(manifest)) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(manifest), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    done.add(line);
+                }
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(manifest.toFile(), "rw")) {
+            long length = raf.length();
+            if (length > 0) {
+                raf.seek(length - 1);
+                if (raf.read() != '\n') {
+                    raf.write('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * 隐藏文件（包括放在收件目录中的清单）和临时文件不处理
+     */
+    private boolean ignored(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(".") || name.endsWith(".tmp") || name.endsWith(".part")
+                || file.toAbsolutePath().normalize().equals(manifest);
+    }
+
+    /**
+     * 已处理的文件数
+     */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * 处理失败的文件数
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * 等待写入完成和正在处理的文件数
+     */
+    public int getPending() {
+        return pending.size() + inFlight.size();
+    }
+
+    /**
+     * 清单中的文件数
+     */
+    public int getDone() {
+        return done.size();
+    }
+
+    /**
+     * 文件大小和修改时间
+     */
+    private static class FileState {
+
+        private static final FileState UNKNOWN = new FileState(-1, -1);
+
+        private final long size;
+
+        private final long modified;
+
+        FileState(BasicFileAttributes attrs) {
+            this(attrs.size(), attrs.lastModifiedTime().toMillis());
+        }
+
+        FileState(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        String key(Path file) {
+            return file.getFileName() + "\t" + size + "\t" + modified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileState)) {
+                return false;
+            }
+            FileState other = (FileState) o;
+            return size == other.size && modified == other.modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+package com.yww.image.util;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+
+/**
+ * <p>
+ *      按位压缩的二值图
+ *      每行使用若干个long保存，一个像素占1位，内存是字节掩码的1/8。
+ *      前景（深色、文字）为1，背景为0，图片范围外视为背景。
+ *      一次二值化后提供行列投影和边缘遍历，供倾斜角计算和去黑边共用
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class BinaryImage {
+
+    /**
+     * 像素回调
+     */
+    public interface PixelConsumer {
+        /**
+         * 处理一个像素
+         *
+         * @param x 列
+         * @param y 行
+         */
+        void accept(int x, int y);
+    }
+
+    private final int width;
+
+    private final int height;
+
+    private final int wordsPerRow;
+
+    private final long[] words;
+
+    private BinaryImage(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words = new long[wordsPerRow * height];
+    }
+
+    /**
+     * 使用Otsu阈值从灰度图生成二值图
+     *
+     * @param gray  灰度图（CV_8UC1）
+     * @return      二值图
+     */
+    public static BinaryImage fromGray(Mat gray) {
+        return fromGray(gray, otsu(gray));
+    }
+
+    /**
+     * 从灰度图生成二值图，灰度值小于阈值的为前景
+     *
+     * @param gray      灰度图（CV_8UC1）
+     * @param threshold 阈值
+     * @return          二值图
+     */
+    public static BinaryImage fromGray(Mat gray, int threshold) {
+        if (gray.type() != CvType.CV_8UC1) {
+            throw new IllegalArgumentException("只支持8位单通道灰度图");
+        }
+        BinaryImage res = new BinaryImage(gray.width(), gray.height());
+        byte[] row = new byte[res.width];
+        for (int y = 0; y < res.height; y++) {
+            gray.get(y, 0, row);
+            PixelKernels.packBelow(row, res.width, threshold, res.words, y * res.wordsPerRow);
+        }
+        return res;
+    }
+
+    /**
+     * 从BufferedImage生成二值图，亮度（0.299R + 0.587G + 0.114B）小于阈值的为前景
+     * TYPE_BYTE_BINARY的图片直接使用样本值，0为前景
+     *
+     * @param image             图片
+     * @param luminanceCutOff   亮度阈值
+     * @return                  二值图
+     */
+    public static BinaryImage fromImage(BufferedImage image, int luminanceCutOff) {
+        BinaryImage res = new BinaryImage(image.getWidth(), image.getHeight());
+        if (image.getType() == BufferedImage.TYPE_BYTE_BINARY) {
+            Raster raster = image.getRaster();
+            int[] samples = new int[res.width];
+            for (int y = 0; y < res.height; y++) {
+                raster.getSamples(0, y, res.width, 1, 0, samples);
+                int base = y * res.wordsPerRow;
+                for (int x = 0; x < res.width; x++) {
+                    if (samples[x] == 0) {
+                        res.words[base + (x >>> 6)] |= 1L << x;
+                    }
+                }
+            }
+            return res;
+        }
+        int[] rgb = new int[res.width];
+        for (int y = 0; y < res.height; y++) {
+            image.getRGB(0, y, res.width, 1, rgb, 0, res.width);
+            PixelKernels.packLuminanceBelow(rgb, res.width, luminanceCutOff, res.words, y * res.wordsPerRow);
+        }
+        return res;
+    }
+
+    /**
+     * 使用Otsu方法计算灰度图的阈值，返回值作为 {@link #fromGray(Mat, int)} 的阈值
+     *
+     * @param gray  灰度图（CV_8UC1）
+     * @return      阈值，小于该值的为前景
+     */
+    public static int otsu(Mat gray) {
+        long[] hist = new long[256];
+        byte[] row = new byte[gray.width()];
+        for (int y = 0; y < gray.height(); y++) {
+            gray.get(y, 0, row);
+            for (byte value : row) {
+                hist[value & 0xff]++;
+            }
+        }
+        long total = (long) gray.width() * gray.height();
+        double sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += (double) i * hist[i];
+        }
+        double sumBack = 0;
+        long weightBack = 0;
+        double bestVariance = -1;
+        int best = 0;
+        for (int t = 0; t < 256; t++) {
+            weightBack += hist[t];
+            if (weightBack == 0) {
+                continue;
+            }
+            long weightFore = total - weightBack;
+            if (weightFore == 0) {
+                break;
+            }
+            sumBack += (double) t * hist[t];
+            double meanBack = sumBack / weightBack;
+            double meanFore = (sum - sumBack) / weightFore;
+            double variance = (double) weightBack * weightFore * (meanBack - meanFore) * (meanBack - meanFore);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                best = t;
+            }
+        }
+        // 与OpenCV一致，小于等于t的为一类
+        return best + 1;
+    }
+
+    /**
+     * 像素是否为前景，图片范围外为背景
+     *
+     * @param x 列
+     * @param y 行
+     * @return  是否为前景
+     */
+    public boolean get(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * 前景像素总数
+     *
+     * @return  像素数
+     */
+    public int count() {
+        int sum = 0;
+        for (long word : words) {
+            sum += Long.bitCount(word);
+        }
+        return sum;
+    }
+
+    /**
+     * 一行的前景像素数
+     *
+     * @param y 行
+     * @return  像素数
+     */
+    public int rowCount(int y) {
+        int sum = 0;
+        int base = y * wordsPerRow;
+        for (int i = 0; i < wordsPerRow; i++) {
+            sum += Long.bitCount(words[base + i]);
+        }
+        return sum;
+    }
+
+    /**
+     * 一列的前景像素数
+     *
+     * @param x 列
+     * @return  像素数
+     */
+    public int columnCount(int x) {
+        int sum = 0;
+        int word = x >>> 6;
+        long mask = 1L << x;
+        for (int y = 0; y < height; y++) {
+            if ((words[y * wordsPerRow + word] & mask) != 0) {
+                sum++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 水平投影，每行的前景像素数
+     *
+     * @return  长度为height的数组
+     */
+    public int[] rowCounts() {
+        int[] res = new int[height];
+        for (int y = 0; y < height; y++) {
+            res[y] = rowCount(y);
+        }
+        return res;
+    }
+
+    /**
+     * 垂直投影，每列的前景像素数
+     *
+     * @return  长度为width的数组
+     */
+    public int[] columnCounts() {
+        int[] res = new int[width];
+        forEachSet(0, height, (x, y) -> res[x]++);
+        return res;
+    }
+
+    /**
+     * 遍历指定行范围内的前景像素，按行从上到下、从左到右
+     *
+     * @param fromRow   起始行（包含）
+     * @param toRow     结束行（不包含）
+     * @param consumer  像素回调
+     */
+    public void forEachSet(int fromRow, int toRow, PixelConsumer consumer) {
+        int end = Math.min(toRow, height);
+        for (int y = Math.max(0, fromRow); y < end; y++) {
+            int base = y * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                visit(words[base + i], i, y, consumer);
+            }
+        }
+    }
+
+    /**
+     * 遍历指定行范围内的下边缘像素：本像素为前景，下方像素为背景
+     *
+     * @param fromRow   起始行（包含）
+     * @param toRow     结束行（不包含）
+     * @param consumer  像素回调
+     */
+    public void forEachLowerEdge(int fromRow, int toRow, PixelConsumer consumer) {
+        int end = Math.min(toRow, height);
+        for (int y = Math.max(0, fromRow); y < end; y++) {
+            int base = y * wordsPerRow;
+            int below = base + wordsPerRow;
+            boolean last = y == height - 1;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long word = last ? words[base + i] : words[base + i] & ~words[below + i];
+                visit(word, i, y, consumer);
+            }
+        }
+    }
+
+    private static void visit(long word, int index, int y, PixelConsumer consumer) {
+        while (word != 0) {
+            int bit = Long.numberOfTrailingZeros(word);
+            consumer.accept((index << 6) + bit, y);
+            word &= word - 1;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 占用的内存
+     *
+     * @return  字节数
+     */
+    public long bytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.yww.image.util;
+
+import com.yww.image.service.Clarity;
+import com.yww.image.service.Deskew;
+import com.yww.image.service.Recognize;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * <p>
+ *      在合成图片上衡量各个算法的误差和耗时
+ *      每次优化倾斜角、清晰度、去黑边和红章定位后运行一次，对比加速和精度损失
+ * </p>
+ * <pre>
+ *  参数：[图片数量 默认60] [图片宽度 默认1240] [随机种子 默认1]
+ *  系统属性opencv.url指定OpenCV动态库路径，不指定时从java.library.path加载
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class CorpusBenchmark {
+
+    public static void main(String[] args) {
+        String library = System.getProperty("opencv.url");
+        if (library != null) {
+            System.load(library);
+        } else {
+            System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        }
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 1240;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        Map<String, Measure> measures = new LinkedHashMap<>();
+        List<double[]> clarity = new ArrayList<>();
+        for (SyntheticCorpus.Spec spec : SyntheticCorpus.specs(count, width, seed)) {
+            SyntheticCorpus.Sample sample = SyntheticCorpus.generate(spec);
+            Mat mat = sample.getMat();
+            double skew = spec.getSkew();
+
+            measure(measures, "Deskew.getDeskewAngle", mat, m -> Math.abs(Deskew.getDeskewAngle(m) - skew));
+            measure(measures, "Deskew.estimateSkewByProjection", mat,
+                    m -> Math.abs(Deskew.estimateSkewByProjection(m).getAngle() - skew));
+            measure(measures, "ImageDeskew", mat,
+                    m -> Math.abs(new ImageDeskew(OpencvUtil.toBufferedImage(m)).getSkewAngle() - skew));
+            measure(measures, "RemoveBlackUtil2", mat, m -> borderError(m, sample.getContentRect()));
+            measure(measures, "Recognize.locateRed", mat, m -> stampError(m, sample.getStampRect()));
+
+            // 清晰度没有绝对的真值，统计分数与模糊程度的秩相关
+            long start = System.nanoTime();
+            double score = Clarity.sharpness(mat).getLaplacianVariance();
+            measures.computeIfAbsent("Clarity.sharpness", k -> new Measure()).add(0, System.nanoTime() - start);
+            clarity.add(new double[]{-spec.getSigma(), score});
+            mat.release();
+        }
+
+        System.out.printf("图片数量: %d，宽度: %d，种子: %d%n", count, width, seed);
+        System.out.printf("%-36s %10s %10s %10s%n", "操作", "平均误差", "最大误差", "平均耗时ms");
+        for (Map.Entry<String, Measure> entry : measures.entrySet()) {
+            Measure m = entry.getValue();
+            System.out.printf("%-36s %10.3f %10.3f %10.2f%n", entry.getKey(), m.meanError(), m.maxError, m.meanMillis());
+        }
+        System.out.printf("Clarity与模糊程度的Spearman秩相关: %.3f（越接近1越好）%n", spearman(clarity));
+        System.out.println("倾斜角误差单位为度，RemoveBlackUtil2为四条边的像素误差之和，locateRed为1 - IoU");
+    }
+
+    private static void measure(Map<String, Measure> measures, String name, Mat mat, ToDoubleFunction<Mat> operation) {
+        long start = System.nanoTime();
+        double error = operation.applyAsDouble(mat);
+        measures.computeIfAbsent(name, k -> new Measure()).add(error, System.nanoTime() - start);
+    }
+
+    /**
+     * 去黑边结果与内容区域四条边的误差之和
+     */
+    private static double borderError(Mat mat, Rect content) {
+        Mat res = RemoveBlackUtil2.removeBlackEdge(mat);
+        Size whole = new Size();
+        Point offset = new Point();
+        res.locateROI(whole, offset);
+        double error = Math.abs(offset.x - content.x) + Math.abs(offset.y - content.y)
+                + Math.abs(offset.x + res.width() - content.x - content.width)
+                + Math.abs(offset.y + res.height() - content.y - content.height);
+        if (res != mat) {
+            res.release();
+        }
+        return error;
+    }
+
+    /**
+     * 1 - IoU，没有印章时检测到任何区域都算完全错误
+     */
+    private static double stampError(Mat mat, Rect expected) {
+        List<Recognize.Stamp> stamps = Recognize.locateRed(mat);
+        if (expected == null) {
+            return stamps.isEmpty() ? 0 : 1;
+        }
+        double best = 0;
+        for (Recognize.Stamp stamp : stamps) {
+            best = Math.max(best, iou(stamp.getRect(), expected));
+        }
+        return 1 - best;
+    }
+
+    private static double iou(Rect a, Rect b) {
+        int x1 = Math.max(a.x, b.x);
+        int y1 = Math.max(a.y, b.y);
+        int x2 = Math.min(a.x + a.width, b.x + b.width);
+        int y2 = Math.min(a.y + a.height, b.y + b.height);
+        double inter = Math.max(0, x2 - x1) * (double) Math.max(0, y2 - y1);
+        double union = a.area() + b.area() - inter;
+        return union <= 0 ? 0 : inter / union;
+    }
+
+    /**
+     * Spearman秩相关，相同值取平均秩
+     */
+    private static double spearman(List<double[]> pairs) {
+        int n = pairs.size();
+        if (n < 2) {
+            return 0;
+        }
+        double[] ra = ranks(pairs, 0);
+        double[] rb = ranks(pairs, 1);
+        double meanA = 0;
+        double meanB = 0;
+        for (int i = 0; i < n; i++) {
+            meanA += ra[i] / n;
+            meanB += rb[i] / n;
+        }
+        double cov = 0;
+        double va = 0;
+        double vb = 0;
+        for (int i = 0; i < n; i++) {
+            cov += (ra[i] - meanA) * (rb[i] - meanB);
+            va += (ra[i] - meanA) * (ra[i] - meanA);
+            vb += (rb[i] - meanB) * (rb[i] - meanB);
+        }
+        return va == 0 || vb == 0 ? 0 : cov / Math.sqrt(va * vb);
+    }
+
+    private static double[] ranks(List<double[]> pairs, int column) {
+        int n = pairs.size();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(pairs.get(a)[column], pairs.get(b)[column]));
+        double[] res = new double[n];
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j + 1 < n && pairs.get(order[j + 1])[column] == pairs.get(order[i])[column]) {
+                j++;
+            }
+            double rank = (i + j) / 2.0 + 1;
+            for (int k = i; k <= j; k++) {
+                res[order[k]] = rank;
+            }
+            i = j + 1;
+        }
+        return res;
+    }
+
+    private static class Measure {
+
+        private int count;
+
+        private double errorSum;
+
+        private double maxError;
+
+        private long nanos;
+
+        void add(double error, long elapsed) {
+            count++;
+            errorSum += error;
+            maxError = Math.max(maxError, error);
+            nanos += elapsed;
+        }
+
+        double meanError() {
+            return count == 0 ? 0 : errorSum / count;
+        }
+
+        double meanMillis() {
+            return count == 0 ? 0 : nanos / 1e6 / count;
+        }
+    }
+
+}
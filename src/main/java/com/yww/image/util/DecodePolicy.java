@@ -0,0 +1,152 @@
+package com.yww.image.util;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * <p>
+ *      图片解码策略
+ *      有些分析（亮度、倾斜角、红章检测等）不需要原图分辨率，
+ *      使用OpenCV的IMREAD_REDUCED_*标志读取时，JPEG会直接在DCT阶段缩小，不会完整解码原图
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public enum DecodePolicy {
+
+    /**
+     * 原图
+     */
+    FULL(1, Imgcodecs.IMREAD_GRAYSCALE, Imgcodecs.IMREAD_COLOR),
+
+    /**
+     * 缩小为1/2
+     */
+    HALF(2, Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2, Imgcodecs.IMREAD_REDUCED_COLOR_2),
+
+    /**
+     * 缩小为1/4
+     */
+    QUARTER(4, Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4, Imgcodecs.IMREAD_REDUCED_COLOR_4),
+
+    /**
+     * 缩小为1/8
+     */
+    EIGHTH(8, Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8, Imgcodecs.IMREAD_REDUCED_COLOR_8);
+
+    /**
+     * 需要读取图片的分析操作
+     */
+    public enum Operation {
+        /**
+         * 倾斜角计算
+         */
+        DESKEW,
+        /**
+         * 亮度计算
+         */
+        BRIGHTNESS,
+        /**
+         * 红色印章检测
+         */
+        RED,
+        /**
+         * 清晰度预检
+         */
+        CLARITY
+    }
+
+    /**
+     * 各个操作使用的解码策略
+     */
+    private static final Map<Operation, DecodePolicy> POLICIES = new EnumMap<>(Operation.class);
+
+    static {
+        POLICIES.put(Operation.DESKEW, HALF);
+        POLICIES.put(Operation.BRIGHTNESS, QUARTER);
+        POLICIES.put(Operation.RED, HALF);
+        POLICIES.put(Operation.CLARITY, HALF);
+    }
+
+    private final int factor;
+
+    private final int grayFlag;
+
+    private final int colorFlag;
+
+    DecodePolicy(int factor, int grayFlag, int colorFlag) {
+        this.factor = factor;
+        this.grayFlag = grayFlag;
+        this.colorFlag = colorFlag;
+    }
+
+    /**
+     * 获取操作的解码策略
+     *
+     * @param operation 分析操作
+     * @return          解码策略
+     */
+    public static synchronized DecodePolicy of(Operation operation) {
+        return POLICIES.get(operation);
+    }
+
+    /**
+     * 修改操作的解码策略
+     *
+     * @param operation 分析操作
+     * @param policy    解码策略
+     */
+    public static synchronized void set(Operation operation, DecodePolicy policy) {
+        POLICIES.put(operation, policy);
+    }
+
+    /**
+     * 获取不超过指定缩小倍数的最大解码策略
+     *
+     * @param factor    允许的缩小倍数
+     * @return          解码策略
+     */
+    public static DecodePolicy forFactor(int factor) {
+        DecodePolicy res = FULL;
+        for (DecodePolicy policy : values()) {
+            if (policy.factor <= factor && policy.factor > res.factor) {
+                res = policy;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * 以灰度图读取
+     *
+     * @param filePath  图片路径
+     * @return          图片矩阵
+     */
+    public Mat readGray(String filePath) {
+        return Imgcodecs.imread(filePath, grayFlag);
+    }
+
+    /**
+     * 以BGR彩色图读取
+     *
+     * @param filePath  图片路径
+     * @return          图片矩阵
+     */
+    public Mat readColor(String filePath) {
+        return Imgcodecs.imread(filePath, colorFlag);
+    }
+
+    /**
+     * 缩小倍数，用于换算与尺寸相关的阈值
+     *
+     * @return  缩小倍数
+     */
+    public int getFactor() {
+        return factor;
+    }
+
+}
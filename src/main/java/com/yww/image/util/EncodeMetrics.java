@@ -0,0 +1,64 @@
+package com.yww.image.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ *      图片编码统计
+ *      记录每种编码的次数、耗时和输出大小
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class EncodeMetrics {
+
+    private static final ConcurrentMap<String, Stat> STATS = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次编码
+     *
+     * @param name      编码配置名称或文件后缀
+     * @param nanos     编码耗时（纳秒）
+     * @param bytes     输出大小（字节）
+     */
+    public static void record(String name, long nanos, long bytes) {
+        Stat stat = STATS.computeIfAbsent(name, key -> new Stat());
+        stat.count.increment();
+        stat.nanos.add(nanos);
+        stat.bytes.add(bytes);
+    }
+
+    /**
+     * 获取统计结果
+     *
+     * @return  编码名称 -> [次数, 总耗时（毫秒）, 总大小（字节）]
+     */
+    public static Map<String, long[]> snapshot() {
+        Map<String, long[]> res = new TreeMap<>();
+        STATS.forEach((name, stat) -> res.put(name,
+                new long[]{stat.count.sum(), stat.nanos.sum() / 1_000_000, stat.bytes.sum()}));
+        return res;
+    }
+
+    /**
+     * 清空统计
+     */
+    public static void reset() {
+        STATS.clear();
+    }
+
+    private static class Stat {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder nanos = new LongAdder();
+
+        private final LongAdder bytes = new LongAdder();
+    }
+
+}
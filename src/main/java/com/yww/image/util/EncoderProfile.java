@@ -0,0 +1,116 @@
+package com.yww.image.util;
+
+import org.opencv.core.MatOfInt;
+import org.opencv.imgcodecs.Imgcodecs;
+
+/**
+ * <p>
+ *      图片编码配置
+ *      把常用的编码格式和参数组合起来，保存图片时作为imencode的参数使用
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public enum EncoderProfile {
+
+    /**
+     * PNG快速压缩，压缩等级1，适合中间结果和大图
+     */
+    FAST_PNG("fast-png", "png", Imgcodecs.IMWRITE_PNG_COMPRESSION, 1),
+
+    /**
+     * PNG最高压缩，压缩等级9，适合归档
+     */
+    ARCHIVE_PNG("archive-png", "png", Imgcodecs.IMWRITE_PNG_COMPRESSION, 9),
+
+    /**
+     * JPEG质量95，与OpenCV默认参数相同
+     */
+    JPEG_Q95("jpeg-q95", "jpg", Imgcodecs.IMWRITE_JPEG_QUALITY, 95),
+
+    /**
+     * JPEG质量85
+     */
+    JPEG_Q85("jpeg-q85", "jpg", Imgcodecs.IMWRITE_JPEG_QUALITY, 85),
+
+    /**
+     * WEBP有损压缩，质量90
+     */
+    WEBP("webp", "webp", Imgcodecs.IMWRITE_WEBP_QUALITY, 90),
+
+    /**
+     * TIFF使用LZW压缩（libtiff中COMPRESSION_LZW的值为5）
+     */
+    TIFF_LZW("tiff-lzw", "tif", Imgcodecs.IMWRITE_TIFF_COMPRESSION, 5);
+
+    private final String name;
+
+    private final String ext;
+
+    private final int[] params;
+
+    EncoderProfile(String name, String ext, int... params) {
+        this.name = name;
+        this.ext = ext;
+        this.params = params;
+    }
+
+    /**
+     * 根据名称获取编码配置
+     *
+     * @param name  名称，例如fast-png
+     * @return      编码配置
+     */
+    public static EncoderProfile of(String name) {
+        for (EncoderProfile profile : values()) {
+            if (profile.name.equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("不支持的编码配置： -->" + name);
+    }
+
+    /**
+     * 根据文件后缀获取默认的编码配置，参数与OpenCV默认值一致，不改变已有调用的输出
+     * WEBP默认为无损压缩，没有对应的配置
+     *
+     * @param ext   文件后缀，不带点
+     * @return      编码配置，不支持的后缀返回null
+     */
+    public static EncoderProfile forExtension(String ext) {
+        if (ext == null) {
+            return null;
+        }
+        switch (ext.toLowerCase()) {
+            case "png":
+                return FAST_PNG;
+            case "jpg":
+            case "jpeg":
+                return JPEG_Q95;
+            case "tif":
+            case "tiff":
+                return TIFF_LZW;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * imencode参数
+     *
+     * @return  参数
+     */
+    public MatOfInt params() {
+        return new MatOfInt(params);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getExt() {
+        return ext;
+    }
+
+}
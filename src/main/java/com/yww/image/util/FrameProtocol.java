@@ -0,0 +1,216 @@
+package com.yww.image.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+/**
+ * <p>
+ *      长度前缀的二进制批量协议
+ *      一个连接中连续发送多张图片，不使用multipart，也不产生临时文件。
+ *      读取一帧后立即提交处理，同时处理的帧数不超过窗口大小，结果按请求顺序写回。
+ *      读到帧长度后、分配图片内存之前先申请字节预算，写回结果后才归还，
+ *      读入但还没有写回的图片总量不超过预算，处理慢的帧会让后续帧停在读取之前，而不是堆积在内存中
+ * </p>
+ * <pre>
+ *  请求帧（大端）：u16 头长度 | 头（UTF-8，例如 analyze、deskew;jpeg-q85） | u32 图片长度 | 图片
+ *  响应帧（大端）：u8 状态（0成功，1失败） | u32 长度 | 结果（失败时为UTF-8错误信息）
+ *  请求以流结束为止，单帧出错不影响后续帧，帧格式错误时中断连接
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class FrameProtocol {
+
+    public static final int OK = 0;
+
+    public static final int ERROR = 1;
+
+    /**
+     * 写出线程结束的标记
+     */
+    private static final Pending END = new Pending(new FutureTask<>(() -> null), 0);
+
+    /**
+     * 处理所有请求帧
+     * 当前线程读取请求帧并提交处理，单独的写出线程按请求顺序等待结果并写回，
+     * 写完时没有排队的结果就立即刷出，调用方发送一帧后等待结果不会因为读取阻塞而收不到响应
+     *
+     * @param in        请求流
+     * @param out       响应流
+     * @param executor  处理线程池
+     * @param window    同时处理的最大帧数
+     * @param maxFrame  单帧图片的最大字节数
+     * @param maxBytes  读入但还没有写回的图片最大总字节数，单帧超过时独占全部预算
+     * @param handler   处理单帧，参数为帧头和图片内容，返回结果
+     */
+    public static void process(InputStream in, OutputStream out, ExecutorService executor, int window, int maxFrame,
+                               long maxBytes, BiFunction<String, byte[], byte[]> handler) throws IOException {
+        DataInputStream input = new DataInputStream(in);
+        DataOutputStream output = new DataOutputStream(out);
+        BlockingQueue<Pending> pending = new LinkedBlockingQueue<>();
+        // 读取前申请，写回后释放，限制同时处理的帧数和读入的字节数，字节预算以KB为单位
+        Semaphore slots = new Semaphore(window);
+        int totalPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytes / 1024));
+        Semaphore memory = new Semaphore(totalPermits);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread writer = new Thread(() -> write(output, pending, slots, memory, error), "frame-writer");
+        writer.start();
+        try {
+            int first;
+            while (error.get() == null && (first = input.read()) >= 0) {
+                String header = new String(readHeader(input, first), StandardCharsets.UTF_8);
+                int length = readLength(input, maxFrame);
+                int permits = Math.min(totalPermits, Math.max(1, length / 1024));
+                slots.acquire();
+                memory.acquire(permits);
+                byte[] body;
+                try {
+                    body = new byte[length];
+                    input.readFully(body);
+                } catch (IOException | RuntimeException | Error e) {
+                    memory.release(permits);
+                    slots.release();
+                    throw e;
+                }
+                pending.add(new Pending(executor.submit(() -> handler.apply(header, body)), permits));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error.compareAndSet(null, e);
+        } catch (IOException | RuntimeException e) {
+            error.compareAndSet(null, e);
+        } finally {
+            pending.add(END);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                writer.interrupt();
+            }
+        }
+        Throwable cause = error.get();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause != null) {
+            throw new InterruptedIOException("处理被中断");
+        }
+    }
+
+    /**
+     * 写出线程：按请求顺序写回结果，出错后取消剩余的处理并继续释放窗口和字节预算，避免读取线程阻塞
+     */
+    private static void write(DataOutputStream output, BlockingQueue<Pending> pending, Semaphore slots,
+                              Semaphore memory, AtomicReference<Throwable> error) {
+        try {
+            while (true) {
+                Pending next = pending.take();
+                if (next == END) {
+                    break;
+                }
+                try {
+                    if (error.get() != null) {
+                        next.future.cancel(true);
+                        continue;
+                    }
+                    write(output, next.future);
+                    if (pending.isEmpty()) {
+                        output.flush();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    memory.release(next.permits);
+                    slots.release();
+                }
+            }
+            if (error.get() == null) {
+                output.flush();
+            }
+        } catch (InterruptedException e) {
+            error.compareAndSet(null, e);
+            for (Pending next : pending) {
+                next.future.cancel(true);
+            }
+        } catch (IOException e) {
+            error.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * 读取帧头
+     *
+     * @param first 已经读取的头长度的第一个字节
+     */
+    private static byte[] readHeader(DataInputStream in, int first) throws IOException {
+        int headerLength = (first << 8) | in.readUnsignedByte();
+        byte[] header = new byte[headerLength];
+        in.readFully(header);
+        return header;
+    }
+
+    /**
+     * 读取图片长度，只读长度不分配内存
+     */
+    private static int readLength(DataInputStream in, int maxFrame) throws IOException {
+        long length = in.readInt() & 0xFFFFFFFFL;
+        if (length > maxFrame) {
+            throw new IOException("图片过大：" + length + "字节，上限" + maxFrame + "字节");
+        }
+        return (int) length;
+    }
+
+    private static void write(DataOutputStream out, Future<byte[]> future) throws IOException {
+        byte[] payload;
+        int status = OK;
+        try {
+            payload = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EOFException("处理被中断");
+        } catch (ExecutionException e) {
+            status = ERROR;
+            Throwable cause = e.getCause();
+            String message = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+            payload = message.getBytes(StandardCharsets.UTF_8);
+        }
+        out.writeByte(status);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    /**
+     * 等待写回的帧和它占用的字节预算
+     */
+    private static class Pending {
+
+        private final Future<byte[]> future;
+
+        private final int permits;
+
+        Pending(Future<byte[]> future, int permits) {
+            this.future = future;
+            this.permits = permits;
+        }
+    }
+
+}
@@ -123,18 +123,16 @@ public class ImageDeskew {
     private void calc() {
         int hMin = (int) ((this.cImage.getHeight()) / 4.0);
         int hMax = (int) ((this.cImage.getHeight()) * 3.0 / 4.0);
+        int xMax = this.cImage.getWidth() - 2;
         init();
 
-        for (int y = hMin; y < hMax; y++) {
-            for (int x = 1; x < (this.cImage.getWidth() - 2); x++) {
-                // only lower edges are considered
-                if (isBlack(this.cImage, x, y)) {
-                    if (!isBlack(this.cImage, x, y + 1)) {
-                        calc(x, y);
-                    }
-                }
+        // binarize once, only lower edges are considered
+        BinaryImage binary = BinaryImage.fromImage(this.cImage, 140);
+        binary.forEachLowerEdge(hMin, hMax, (x, y) -> {
+            if (x >= 1 && x < xMax) {
+                calc(x, y);
             }
-        }
+        });
 
     }
 
@@ -0,0 +1,80 @@
+package com.yww.image.util;
+
+import org.apache.commons.imaging.ImageReadException;
+import org.apache.commons.imaging.Imaging;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * <p>
+ *      图片头读取
+ *      只读取图片头获取宽高，不解码图片。优先使用commons-imaging，不支持的格式使用ImageIO读取
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class ImageHeader {
+
+    /**
+     * 读取图片文件的宽高
+     *
+     * @param file  图片文件
+     * @return      宽高，不支持的格式返回null
+     * @throws IOException  读取图片头出错
+     */
+    public static Dimension readSize(File file) throws IOException {
+        try {
+            return Imaging.getImageSize(file);
+        } catch (ImageReadException | IOException | RuntimeException e) {
+            // commons-imaging不支持的格式，使用ImageIO读取
+        }
+        return readSizeByImageIo(file);
+    }
+
+    /**
+     * 读取内存中图片的宽高
+     *
+     * @param bytes 图片文件内容
+     * @return      宽高，不支持的格式返回null
+     * @throws IOException  读取图片头出错
+     */
+    public static Dimension readSize(byte[] bytes) throws IOException {
+        try {
+            return Imaging.getImageSize(bytes);
+        } catch (ImageReadException | IOException | RuntimeException e) {
+            // commons-imaging不支持的格式，使用ImageIO读取
+        }
+        return readSizeByImageIo(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * @param input ImageIO支持的输入，例如File或InputStream
+     */
+    private static Dimension readSizeByImageIo(Object input) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(input)) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+}
@@ -1,7 +1,5 @@
 package com.yww.image.util;
 
-import cn.hutool.core.img.ImgUtil;
-import cn.hutool.core.io.FileUtil;
 import com.drew.imaging.ImageMetadataReader;
 import com.drew.metadata.Directory;
 import com.drew.metadata.Metadata;
@@ -9,6 +7,8 @@ import com.drew.metadata.Tag;
 import org.opencv.core.Core;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfByte;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
 import org.opencv.core.Size;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
@@ -30,7 +30,7 @@ import java.io.FileOutputStream;
 public class ImageUtil {
 
     /**
-     * 使用Graphics2D进行旋转图片
+     * 旋转图片，按中心点顺时针旋转，保持原图尺寸，四周用白色填充
      *
      * @param src       输入路径
      * @param dst       输出路径
@@ -38,29 +38,73 @@ public class ImageUtil {
      */
     public static void rotateImage(String src, String dst, double degree) {
         // 读取图片
-        BufferedImage image = ImgUtil.read(src);
+        Mat mat = Imgcodecs.imread(src);
+        Mat res = rotate(mat, degree);
+        // 写出图片
+        OpencvUtil.writeImage(res, dst);
+        mat.release();
+        res.release();
+    }
 
-        // 获取图片宽，高，类型
-        int width = image.getWidth();
-        int height = image.getHeight();
-        int type = image.getType();
-        // 创建Graphics2D
-        BufferedImage res = new BufferedImage(width, height, type);
-        Graphics2D graphics  = res.createGraphics();
-        // 设置图形渲染选项，指定双线性插值算法作为图像缩放时的默认算法
-        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        // 设置图片底色
-        graphics.setBackground(Color.WHITE);
-        // 填充底图
-        graphics.fillRect(0, 0, width, height);
-        // 按中心点旋转图片
-        graphics.rotate(Math.toRadians(degree), width >> 1, height >> 1);
-        graphics.drawImage(image, 0, 0, null);
-        // 关闭Graphics2D
-        graphics.dispose();
+    /**
+     * 按中心点顺时针旋转图片，保持原图尺寸，四周用白色填充
+     *
+     * @param mat       图像矩阵
+     * @param degree    旋转角度
+     * @return          旋转后的图像矩阵
+     */
+    public static Mat rotate(Mat mat, double degree) {
+        return rotate(mat, degree, false, new Scalar(255, 255, 255, 255));
+    }
 
-        // 写出图片
-        ImgUtil.write(res, FileUtil.file(dst));
+    /**
+     * 按中心点顺时针旋转图片
+     * 90度的整数倍并且尺寸允许时直接转置和翻转，没有插值误差；其他角度使用warpAffine双线性插值
+     *
+     * @param mat       图像矩阵
+     * @param degree    旋转角度，正数为顺时针
+     * @param expand    是否扩大画布以保留旋转后的四个角，false则保持原图尺寸
+     * @param border    填充颜色
+     * @return          旋转后的图像矩阵
+     */
+    public static Mat rotate(Mat mat, double degree, boolean expand, Scalar border) {
+        Mat res = new Mat();
+        double normalized = ((degree % 360) + 360) % 360;
+        long quarter = Math.round(normalized / 90);
+        if (Math.abs(normalized - quarter * 90) < 1e-6) {
+            int turns = (int) (quarter % 4);
+            // 90度和270度会交换宽高，只有扩大画布或者正方形图片可以直接转置
+            boolean exact = turns % 2 == 0 || expand || mat.width() == mat.height();
+            if (turns == 0) {
+                return mat.clone();
+            } else if (exact) {
+                int code = turns == 1 ? Core.ROTATE_90_CLOCKWISE
+                        : turns == 2 ? Core.ROTATE_180 : Core.ROTATE_90_COUNTERCLOCKWISE;
+                Core.rotate(mat, res, code);
+                return res;
+            }
+        }
+
+        int width = mat.width();
+        int height = mat.height();
+        Point center = new Point((width - 1) / 2.0, (height - 1) / 2.0);
+        // OpenCV的正角度为逆时针
+        Mat matrix = Imgproc.getRotationMatrix2D(center, -degree, 1.0);
+        Size size = new Size(width, height);
+        if (expand) {
+            double radians = Math.toRadians(degree);
+            double sin = Math.abs(Math.sin(radians));
+            double cos = Math.abs(Math.cos(radians));
+            int newWidth = (int) Math.round(width * cos + height * sin);
+            int newHeight = (int) Math.round(width * sin + height * cos);
+            // 平移到新画布中心
+            matrix.put(0, 2, matrix.get(0, 2)[0] + (newWidth - width) / 2.0);
+            matrix.put(1, 2, matrix.get(1, 2)[0] + (newHeight - height) / 2.0);
+            size = new Size(newWidth, newHeight);
+        }
+        Imgproc.warpAffine(mat, res, matrix, size, Imgproc.INTER_LINEAR, Core.BORDER_CONSTANT, border);
+        matrix.release();
+        return res;
     }
 
     /**
@@ -101,7 +145,7 @@ public class ImageUtil {
      * @return          图像矩阵
      */
     public static Mat gaussianBlur(Mat mat) {
-        Mat blurred = mat.clone();
+        Mat blurred = new Mat();
         Imgproc.GaussianBlur(mat, blurred, new Size(3, 3), 0, 0);
         return blurred;
     }
@@ -130,19 +174,11 @@ public class ImageUtil {
      * @return          图像矩阵
      */
     public static Mat canny(Mat mat, int threshold1, int threshold2, int apertureSize) {
-        // 进行高斯平滑
-        Mat blurred = new Mat();
-        Imgproc.GaussianBlur(mat, blurred, new Size(3, 3), 0, 0);
-
-        // 灰度化
-        Mat gray = new Mat();
-        Imgproc.cvtColor(blurred, gray, Imgproc.COLOR_BGR2GRAY);
-
-        // 进行边缘检测
-        Mat canny = new Mat();
-        Imgproc.Canny(gray, canny, threshold1, threshold2, apertureSize);
-
-        return canny;
+        // 高斯平滑、灰度化后进行边缘检测
+        Pipeline.Node canny = Pipeline.source().blur(3).gray().canny(threshold1, threshold2, apertureSize);
+        try (Pipeline.Result res = Pipeline.run(mat, canny)) {
+            return res.take(canny);
+        }
     }
 
     /**
@@ -204,7 +240,7 @@ public class ImageUtil {
      * @param file  上传图片
      * @return      图片旋转角度
      */
-    private static int getAngle(File file) throws Exception {
+    public static int getAngle(File file) throws Exception {
         Metadata metadata = ImageMetadataReader.readMetadata(file);
         for (Directory directory : metadata.getDirectories()) {
             for (Tag tag : directory.getTags()) {
@@ -0,0 +1,135 @@
+package com.yww.image.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>
+ *      像素计算一致性检查
+ *      用随机数据和各种奇数长度、非0起始位置比较 {@link PixelKernels} 与标量实现的结果：
+ *      求和、直方图、红色计数、按阈值打包以及打包后的位计数，结果不一致时以非0状态退出。
+ *      多版本jar只在以jar运行时生效，java17-vector配置在verify阶段以打包好的jar运行检查，也可以手动运行：
+ * </p>
+ * <pre>
+ *  mvn -Pjava17-vector verify
+ *  java --add-modules jdk.incubator.vector -cp target/image-0.1.jar com.yww.image.util.KernelCheck
+ *
+ *  参数（系统属性）：
+ *  kernel.rounds   随机长度的轮数，默认200
+ *  kernel.seed     随机种子，默认当前时间
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class KernelCheck {
+
+    /**
+     * 固定检查的长度，覆盖空数组、不足一个向量、刚好和跨越64位边界，以及超过求和分段长度的情况
+     */
+    private static final int[] LENGTHS = {0, 1, 7, 15, 31, 33, 63, 64, 65, 127, 129, 255, 1000, 4099, (1 << 20) + 3, 3 << 20};
+
+    public static void main(String[] args) {
+        int rounds = Integer.getInteger("kernel.rounds", 200);
+        long seed = Long.getLong("kernel.seed", System.currentTimeMillis());
+        Random random = new Random(seed);
+        System.out.printf("向量实现: %s，随机种子: %d%n", PixelKernels.isVectorized(), seed);
+
+        int failures = 0;
+        int checks = 0;
+        int[] lengths = Arrays.copyOf(LENGTHS, LENGTHS.length + rounds);
+        for (int i = LENGTHS.length; i < lengths.length; i++) {
+            lengths[i] = random.nextInt(10000);
+        }
+        for (int length : lengths) {
+            int offset = length == 0 ? 0 : random.nextInt(17);
+            // 全部为0xff时检查求和是否溢出
+            for (boolean saturated : new boolean[]{false, true}) {
+                byte[] data = new byte[offset + length];
+                if (saturated) {
+                    Arrays.fill(data, (byte) 0xff);
+                } else {
+                    random.nextBytes(data);
+                }
+                failures += check("sum", length, ScalarKernels.sum(data, offset, length) == PixelKernels.sum(data, offset, length));
+                checks++;
+
+                int[] expected = new int[256];
+                int[] actual = new int[256];
+                ScalarKernels.histogram(data, offset, length, expected);
+                PixelKernels.histogram(data, offset, length, actual);
+                failures += check("histogram", length, Arrays.equals(expected, actual));
+                checks++;
+            }
+
+            byte[] h = bytes(random, length, 181);
+            byte[] s = bytes(random, length, 256);
+            byte[] v = bytes(random, length, 256);
+            failures += check("countRed", length, ScalarKernels.countRed(h, s, v, length) == PixelKernels.countRed(h, s, v, length));
+            checks++;
+
+            int threshold = random.nextInt(257);
+            byte[] gray = bytes(random, length, 256);
+            int words = (length + 63) / 64;
+            long[] expected = new long[words + 2];
+            long[] actual = new long[words + 2];
+            ScalarKernels.packBelow(gray, length, threshold, expected, 1);
+            PixelKernels.packBelow(gray, length, threshold, actual, 1);
+            failures += check("packBelow", length, Arrays.equals(expected, actual));
+            failures += check("popcount", length, popcount(actual) == countBelow(gray, length, threshold));
+            checks += 2;
+
+            int[] rgb = new int[length];
+            for (int i = 0; i < length; i++) {
+                rgb[i] = random.nextInt();
+            }
+            int cutOff = random.nextInt(257);
+            Arrays.fill(expected, 0);
+            Arrays.fill(actual, 0);
+            ScalarKernels.packLuminanceBelow(rgb, length, cutOff, expected, 1);
+            PixelKernels.packLuminanceBelow(rgb, length, cutOff, actual, 1);
+            failures += check("packLuminanceBelow", length, Arrays.equals(expected, actual));
+            checks++;
+        }
+
+        System.out.printf("检查: %d，不一致: %d%n", checks, failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static int check(String name, int length, boolean ok) {
+        if (ok) {
+            return 0;
+        }
+        System.out.printf("%s 不一致，长度: %d%n", name, length);
+        return 1;
+    }
+
+    private static byte[] bytes(Random random, int length, int bound) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) random.nextInt(bound);
+        }
+        return data;
+    }
+
+    private static int popcount(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static int countBelow(byte[] gray, int length, int threshold) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if ((gray[i] & 0xff) < threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.yww.image.util;
+
+import com.yww.image.service.LeaseWorker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *      多节点租约压测
+ *      启动多个JVM进程在同一个收件目录上运行 {@link LeaseWorker}，部分文件的处理时间超过租约时长以覆盖续约，
+ *      中途强制结束一个进程以覆盖过期接管。每个进程把每个文件的处理开始和结束时间写入自己的日志，
+ *      全部完成后检查：每个文件都有完成标记，每个文件只完整处理一次，同一个文件的处理时间段没有重叠。
+ *      检查失败时以非0状态退出
+ * </p>
+ * <pre>
+ *  参数（系统属性）：
+ *  lease.nodes     进程数，默认4
+ *  lease.files     文件数，默认200
+ *  lease.millis    租约时长（毫秒），默认500
+ *  lease.timeout   等待全部完成的超时（秒），默认120
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class LeaseStress {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "worker".equals(args[0])) {
+            worker(args[1], args[2], Long.parseLong(args[3]));
+            return;
+        }
+        int nodes = Integer.getInteger("lease.nodes", 4);
+        int files = Integer.getInteger("lease.files", 200);
+        long leaseMillis = Long.getLong("lease.millis", 500);
+        long timeout = Long.getLong("lease.timeout", 120);
+
+        Path root = Files.createTempDirectory("lease-stress");
+        Path inbox = Files.createDirectories(root.resolve("inbox"));
+        for (int i = 0; i < files; i++) {
+            Files.write(inbox.resolve(String.format("%05d.png", i)), new byte[]{(byte) i});
+        }
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        List<Path> logs = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            Path log = root.resolve("node-" + i + ".log");
+            logs.add(log);
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    LeaseStress.class.getName(), "worker", inbox.toString(), log.toString(), String.valueOf(leaseMillis))
+                    .redirectErrorStream(true)
+                    .redirectOutput(root.resolve("node-" + i + ".out").toFile())
+                    .start());
+        }
+
+        // 等一部分文件完成后强制结束第一个进程，它持有的租约只能等过期后由其他进程接管
+        Path doneDir = inbox.resolve(".done");
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeout);
+        while (count(doneDir) < files / 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        processes.get(0).destroyForcibly().waitFor();
+        long killedAt = System.currentTimeMillis();
+
+        while (count(doneDir) < files && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        for (Process process : processes) {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+            process.destroyForcibly();
+        }
+
+        List<String> errors = new ArrayList<>();
+        int done = count(doneDir);
+        if (done < files) {
+            errors.add("未完成的文件数：" + (files - done));
+        }
+        Map<String, List<long[]>> intervals = new HashMap<>();
+        Map<String, Integer> completed = new HashMap<>();
+        for (int i = 0; i < nodes; i++) {
+            Map<String, Long> started = new HashMap<>();
+            for (String line : Files.readAllLines(logs.get(i), StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length < 3) {
+                    // 进程被结束时写了一半的行
+                    continue;
+                }
+                long time = Long.parseLong(parts[2]);
+                if ("start".equals(parts[0])) {
+                    started.put(parts[1], time);
+                } else {
+                    intervals.computeIfAbsent(parts[1], k -> new ArrayList<>()).add(new long[]{started.remove(parts[1]), time, i});
+                    // 被结束的进程可能处理完还没写完成标记，允许其他进程重做
+                    if (i > 0) {
+                        completed.merge(parts[1], 1, Integer::sum);
+                    }
+                }
+            }
+            // 被结束的进程没有写结束时间的文件，按结束进程的时间计算
+            for (Map.Entry<String, Long> entry : started.entrySet()) {
+                intervals.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(new long[]{entry.getValue(), killedAt, i});
+            }
+        }
+        for (Map.Entry<String, Integer> entry : completed.entrySet()) {
+            if (entry.getValue() > 1) {
+                errors.add(entry.getKey() + " 完整处理了" + entry.getValue() + "次");
+            }
+        }
+        for (Map.Entry<String, List<long[]>> entry : intervals.entrySet()) {
+            List<long[]> list = entry.getValue();
+            for (int a = 0; a < list.size(); a++) {
+                for (int b = a + 1; b < list.size(); b++) {
+                    long[] x = list.get(a);
+                    long[] y = list.get(b);
+                    if (x[0] < y[1] && y[0] < x[1]) {
+                        errors.add(entry.getKey() + " 被节点" + x[2] + "和节点" + y[2] + "同时处理");
+                    }
+                }
+            }
+        }
+
+        System.out.printf("进程数: %d，文件数: %d，完成: %d，租约: %dms，目录: %s%n", nodes, files, done, leaseMillis, root);
+        if (!errors.isEmpty()) {
+            errors.forEach(System.out::println);
+            System.exit(1);
+        }
+        System.out.println("检查通过");
+    }
+
+    /**
+     * 子进程：运行LeaseWorker，处理时记录开始和结束时间，约5%的文件处理时间为租约时长的2倍
+     */
+    private static void worker(String inbox, String log, long leaseMillis) throws IOException {
+        PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(log), StandardCharsets.UTF_8), true);
+        Random random = new Random();
+        String pid = ManagementFactory.getRuntimeMXBean().getName();
+        LeaseWorker worker = new LeaseWorker(inbox, file -> {
+            String name = file.getFileName().toString();
+            writer.println("start\t" + name + "\t" + System.currentTimeMillis() + "\t" + pid);
+            long millis = random.nextInt(20) < 1 ? leaseMillis * 2 : random.nextInt(30);
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("处理被中断", e);
+            }
+            writer.println("end\t" + name + "\t" + System.currentTimeMillis() + "\t" + pid);
+        }, leaseMillis, 2, 50);
+        worker.start();
+    }
+
+    private static int count(Path dir) {
+        String[] names = new File(dir.toString()).list();
+        return names == null ? 0 : names.length;
+    }
+
+}
@@ -0,0 +1,320 @@
+package com.yww.image.util;
+
+import com.yww.image.ImageApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ *      接口压测
+ *      在随机端口启动整个应用，用生成的图片并发调用处理接口，经过完整的请求链路（multipart解析、解码、处理、编码），
+ *      分别压测multipart批量接口（/analysis/batch）和二进制批量接口（/analysis/frames，每次请求一个分析帧和一个纠偏帧），
+ *      每次请求的文件名不同并随机修改少量像素，请求合并不会把压测变成重复的同一张图片，
+ *      按接口输出吞吐量和p50、p95、p99延迟，超过SLO或有失败请求时以非0状态退出，
+ *      使用 mvn -Pload-test verify 运行时构建会失败
+ * </p>
+ * <pre>
+ *  参数（系统属性）：
+ *  load.clients    并发客户端数，默认8
+ *  load.requests   请求总数，默认400
+ *  load.warmup     预热请求数，不计入统计，默认40
+ *  load.slo.p50    p50延迟上限（毫秒），默认300
+ *  load.slo.p95    p95延迟上限（毫秒），默认1000
+ *  load.slo.p99    p99延迟上限（毫秒），默认2000
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class LoadTest {
+
+    private static final String BOUNDARY = "----LoadTestBoundary7MA4YWxkTrZu0gW";
+
+    /**
+     * 压测的接口
+     */
+    private static final String[] ENDPOINTS = {"batch", "frames"};
+
+    /**
+     * 每次请求随机修改的像素数
+     */
+    private static final int NOISE_PIXELS = 16;
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("load.clients", 8);
+        int requests = Integer.getInteger("load.requests", 400);
+        int warmup = Integer.getInteger("load.warmup", 40);
+        long[] slo = {
+                Long.getLong("load.slo.p50", 300),
+                Long.getLong("load.slo.p95", 1000),
+                Long.getLong("load.slo.p99", 2000)
+        };
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ImageApplication.class)
+                .properties("server.port=0")
+                .run(args);
+        int exitCode;
+        try {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            List<Sample> mix = imageMix();
+
+            exitCode = 0;
+            for (String endpoint : ENDPOINTS) {
+                URL url = new URL("http://127.0.0.1:" + port + "/analysis/" + endpoint);
+                run(url, endpoint, mix, clients, warmup);
+                long start = System.nanoTime();
+                Stats stats = run(url, endpoint, mix, clients, requests);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                long[] percentiles = {stats.percentile(50), stats.percentile(95), stats.percentile(99)};
+                System.out.printf("接口: /analysis/%s%n", endpoint);
+                System.out.printf("请求数: %d，失败: %d，并发: %d%n", requests, stats.errors.get(), clients);
+                System.out.printf("吞吐量: %.1f 请求/秒%n", requests / seconds);
+                System.out.printf("延迟(ms) p50: %d，p95: %d，p99: %d%n", percentiles[0], percentiles[1], percentiles[2]);
+
+                String[] names = {"p50", "p95", "p99"};
+                for (int i = 0; i < slo.length; i++) {
+                    if (percentiles[i] > slo[i]) {
+                        System.out.printf("超过SLO: /analysis/%s %s %dms > %dms%n", endpoint, names[i], percentiles[i], slo[i]);
+                        exitCode = 1;
+                    }
+                }
+                if (stats.errors.get() > 0) {
+                    exitCode = 1;
+                }
+            }
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * 并发发送请求，每个客户端按顺序轮流使用图片，每次请求的图片在计时前生成
+     */
+    private static Stats run(URL url, String endpoint, List<Sample> mix, int clients, int requests) throws Exception {
+        Stats stats = new Stats(requests);
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                futures.add(executor.submit(() -> {
+                    Random random = new Random();
+                    int i;
+                    while ((i = next.getAndIncrement()) < requests) {
+                        Sample sample = mix.get(i % mix.size());
+                        String name = i + "-" + random.nextInt(Integer.MAX_VALUE) + "-" + sample.name;
+                        byte[] bytes = sample.unique(random);
+                        long begin = System.nanoTime();
+                        boolean ok = "frames".equals(endpoint) ? postFrames(url, name, bytes) : post(url, name, bytes);
+                        stats.latencies[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+                        if (!ok) {
+                            stats.errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return stats;
+    }
+
+    /**
+     * 以multipart上传一张图片，读取完整的NDJSON响应
+     */
+    private static boolean post(URL url, String name, byte[] bytes) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
+            byte[] head = ("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"files\"; filename=\"" + name + "\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+            byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+            connection.setFixedLengthStreamingMode(head.length + bytes.length + tail.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(head);
+                out.write(bytes);
+                out.write(tail);
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = connection.getInputStream()) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    body.write(buffer, 0, n);
+                }
+            }
+            return !new String(body.toByteArray(), StandardCharsets.UTF_8).contains("\"error\"");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 以二进制批量发送同一张图片的分析帧和纠偏帧，读取全部响应帧，格式见 {@link FrameProtocol}
+     */
+    private static boolean postFrames(URL url, String name, byte[] bytes) {
+        String[] headers = {"analyze;" + name, "deskew"};
+        try {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            DataOutputStream frames = new DataOutputStream(request);
+            for (String header : headers) {
+                byte[] head = header.getBytes(StandardCharsets.UTF_8);
+                frames.writeShort(head.length);
+                frames.write(head);
+                frames.writeInt(bytes.length);
+                frames.write(bytes);
+            }
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setFixedLengthStreamingMode(request.size());
+            try (OutputStream out = connection.getOutputStream()) {
+                request.writeTo(out);
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+            boolean ok = true;
+            try (DataInputStream in = new DataInputStream(connection.getInputStream())) {
+                for (int i = 0; i < headers.length; i++) {
+                    int status = in.readUnsignedByte();
+                    byte[] payload = new byte[in.readInt()];
+                    in.readFully(payload);
+                    ok &= status == FrameProtocol.OK;
+                }
+                // 响应帧数与请求帧数一致
+                ok &= in.read() < 0;
+            }
+            return ok;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 生成图片：小图、A4扫描件大小的JPEG和PNG，内容为略微倾斜的文字行
+     */
+    private static List<Sample> imageMix() throws IOException {
+        Random random = new Random(42);
+        List<Sample> mix = new ArrayList<>();
+        int[][] sizes = {{800, 600}, {1240, 1754}, {2480, 3508}};
+        String[] formats = {"jpg", "png"};
+        for (int[] size : sizes) {
+            for (String format : formats) {
+                BufferedImage image = document(size[0], size[1], random.nextDouble() * 6 - 3, random);
+                mix.add(new Sample(size[0] + "x" + size[1] + "." + format, format, image));
+            }
+        }
+        return mix;
+    }
+
+    private static BufferedImage document(int width, int height, double angle, Random random) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.rotate(Math.toRadians(angle), width / 2.0, height / 2.0);
+        g.setColor(Color.BLACK);
+        int fontSize = Math.max(12, width / 60);
+        g.setFont(new Font(Font.SERIF, Font.PLAIN, fontSize));
+        char[] line = new char[Math.max(10, width / fontSize)];
+        for (int y = fontSize * 3; y < height - fontSize * 3; y += fontSize * 2) {
+            for (int i = 0; i < line.length; i++) {
+                line[i] = random.nextInt(6) == 0 ? ' ' : (char) ('a' + random.nextInt(26));
+            }
+            g.drawString(new String(line), fontSize * 3, y);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static class Sample {
+
+        private final String name;
+
+        private final String format;
+
+        private final BufferedImage image;
+
+        Sample(String name, String format, BufferedImage image) {
+            this.name = name;
+            this.format = format;
+            this.image = image;
+        }
+
+        /**
+         * 复制图片并随机修改少量像素后编码，每次请求的内容都不同
+         */
+        byte[] unique(Random random) throws IOException {
+            BufferedImage copy = new BufferedImage(image.getColorModel(), image.copyData(null),
+                    image.isAlphaPremultiplied(), null);
+            for (int i = 0; i < NOISE_PIXELS; i++) {
+                copy.setRGB(random.nextInt(copy.getWidth()), random.nextInt(copy.getHeight()), random.nextInt());
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(copy, format, out);
+            return out.toByteArray();
+        }
+    }
+
+    private static class Stats {
+
+        private final long[] latencies;
+
+        private final AtomicInteger errors = new AtomicInteger();
+
+        Stats(int requests) {
+            this.latencies = new long[requests];
+        }
+
+        /**
+         * 最近秩法计算百分位
+         */
+        long percentile(double p) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p / 100 * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+        }
+    }
+
+}
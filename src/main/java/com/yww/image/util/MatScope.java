@@ -0,0 +1,162 @@
+package com.yww.image.util;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ *      Mat本地内存统计
+ *      一次请求打开一个作用域，请求内创建的Mat登记到当前线程的作用域中，
+ *      可以随时查看单个作用域和所有打开的作用域占用的本地内存，关闭作用域时释放登记的所有Mat。
+ *      只统计登记到作用域的Mat，不是整个进程的本地内存：缓存中的图片（从作用域中移出）、
+ *      缩略图和入口分级等没有打开作用域的路径创建的Mat都不计算在内
+ * </p>
+ * <pre>
+ *  try (MatScope scope = MatScope.open("analysis")) {
+ *      Mat gray = MatScope.register(ImageUtil.gray(mat));
+ *  }
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class MatScope implements AutoCloseable {
+
+    private static final ThreadLocal<MatScope> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 所有打开的作用域
+     */
+    private static final Set<MatScope> OPEN = ConcurrentHashMap.newKeySet();
+
+    private final String name;
+
+    private final MatScope parent;
+
+    private final List<Mat> mats = new ArrayList<>();
+
+    private long peakBytes;
+
+    private MatScope(String name, MatScope parent) {
+        this.name = name;
+        this.parent = parent;
+    }
+
+    /**
+     * 在当前线程打开作用域
+     *
+     * @param name  作用域名称，例如请求的图片名
+     * @return      作用域
+     */
+    public static MatScope open(String name) {
+        MatScope scope = new MatScope(name, CURRENT.get());
+        CURRENT.set(scope);
+        OPEN.add(scope);
+        return scope;
+    }
+
+    /**
+     * 把Mat登记到当前线程的作用域，没有打开作用域时不做处理
+     * 应在Mat分配好数据之后登记，例如图像处理函数的输出
+     *
+     * @param mat   图片矩阵
+     * @return      传入的图片矩阵
+     */
+    public static <T extends Mat> T register(T mat) {
+        MatScope scope = CURRENT.get();
+        if (scope != null) {
+            scope.track(mat);
+        }
+        return mat;
+    }
+
+    /**
+     * 所有打开的作用域中登记的Mat当前占用的本地内存，没有登记到作用域的Mat不计算在内
+     *
+     * @return  字节数
+     */
+    public static long scopedLiveBytes() {
+        long sum = 0;
+        for (MatScope scope : OPEN) {
+            sum += scope.liveBytes();
+        }
+        return sum;
+    }
+
+    /**
+     * 登记Mat
+     *
+     * @param mat   图片矩阵
+     * @return      传入的图片矩阵
+     */
+    public synchronized <T extends Mat> T track(T mat) {
+        mats.add(mat);
+        peakBytes = Math.max(peakBytes, liveBytes());
+        return mat;
+    }
+
+    /**
+     * 取消登记，用于需要在作用域关闭后继续使用的Mat
+     *
+     * @param mat   图片矩阵
+     * @return      传入的图片矩阵
+     */
+    public synchronized <T extends Mat> T detach(T mat) {
+        mats.remove(mat);
+        return mat;
+    }
+
+    /**
+     * 当前占用的本地内存，已经release的Mat和共享数据的子矩阵不计入
+     *
+     * @return  字节数
+     */
+    public synchronized long liveBytes() {
+        long sum = 0;
+        for (Mat mat : mats) {
+            if (mat.dataAddr() != 0 && !mat.isSubmatrix()) {
+                sum += mat.total() * mat.elemSize();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 作用域内登记时观察到的最大本地内存
+     *
+     * @return  字节数
+     */
+    public synchronized long getPeakBytes() {
+        return peakBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 释放登记的所有Mat并恢复上一级作用域
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            for (Mat mat : mats) {
+                mat.release();
+            }
+            mats.clear();
+        }
+        OPEN.remove(this);
+        if (CURRENT.get() == this) {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+    }
+
+}
@@ -9,6 +9,7 @@ import org.apache.commons.imaging.Imaging;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -30,26 +31,83 @@ public class OpencvUtil {
 
     /**
      * 保存图片到指定位置
+     * 后缀有对应的编码配置时使用该配置，否则使用OpenCV默认参数
      *
      * @param mat       图片矩阵
      * @param filePath  文件路径
      * @param ext       保存文件后缀
      */
     public static void saveImage(Mat mat, String filePath, String ext) {
+        EncoderProfile profile = EncoderProfile.forExtension(ext);
+        if (profile != null) {
+            saveImage(mat, filePath, profile);
+            return;
+        }
+        long start = System.nanoTime();
         MatOfByte matOfByte = new MatOfByte();
-        Imgcodecs.imencode("." + ext, mat, matOfByte);
+        if (!Imgcodecs.imencode("." + ext, mat, matOfByte)) {
+            matOfByte.release();
+            throw new RuntimeException("图片编码失败： -->" + ext);
+        }
         byte[] byteArray = matOfByte.toArray();
+        matOfByte.release();
+        EncodeMetrics.record(ext, System.nanoTime() - start, byteArray.length);
         FileUtil.writeBytes(byteArray, filePath);
     }
 
     /**
-     * 保存图片到指定位置
+     * 保存图片到指定位置，默认使用 {@link EncoderProfile#FAST_PNG}
      *
      * @param mat       图片矩阵
      * @param filePath  文件路径
      */
     public static void saveImage(Mat mat, String filePath) {
-        saveImage(mat, filePath, "png");
+        saveImage(mat, filePath, EncoderProfile.FAST_PNG);
+    }
+
+    /**
+     * 按编码配置保存图片到指定位置
+     *
+     * @param mat       图片矩阵
+     * @param filePath  文件路径
+     * @param profile   编码配置
+     */
+    public static void saveImage(Mat mat, String filePath, EncoderProfile profile) {
+        FileUtil.writeBytes(encode(mat, profile), filePath);
+    }
+
+    /**
+     * 按文件后缀选择编码格式保存图片，用于替代Imgcodecs.imwrite
+     *
+     * @param mat       图片矩阵
+     * @param filePath  文件路径
+     */
+    public static void writeImage(Mat mat, String filePath) {
+        String ext = FileUtil.extName(filePath);
+        saveImage(mat, filePath, ext == null || ext.isEmpty() ? "png" : ext);
+    }
+
+    /**
+     * 按编码配置编码图片，并记录编码耗时和大小
+     *
+     * @param mat       图片矩阵
+     * @param profile   编码配置
+     * @return          编码后的字节
+     */
+    public static byte[] encode(Mat mat, EncoderProfile profile) {
+        long start = System.nanoTime();
+        MatOfByte matOfByte = new MatOfByte();
+        MatOfInt params = profile.params();
+        boolean encoded = Imgcodecs.imencode("." + profile.getExt(), mat, matOfByte, params);
+        params.release();
+        if (!encoded) {
+            matOfByte.release();
+            throw new RuntimeException("图片编码失败： -->" + profile.getName());
+        }
+        byte[] byteArray = matOfByte.toArray();
+        matOfByte.release();
+        EncodeMetrics.record(profile.getName(), System.nanoTime() - start, byteArray.length);
+        return byteArray;
     }
 
     /**
@@ -77,6 +135,48 @@ public class OpencvUtil {
         return mat;
     }
 
+    /**
+     *  BufferedImage转换为三通道BGR的mat对象
+     *
+     * @param image 图片流
+     * @return      图片矩阵
+     */
+    public static Mat toMat(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            image = convert(image);
+        }
+        byte[] bytes = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        Mat mat = new Mat(image.getHeight(), image.getWidth(), CvType.CV_8UC3);
+        mat.put(0, 0, bytes);
+        return mat;
+    }
+
+    /**
+     *  mat对象转换为BufferedImage，支持单通道灰度图和三通道BGR图
+     *
+     * @param mat   图片矩阵
+     * @return      图片流
+     */
+    public static BufferedImage toBufferedImage(Mat mat) {
+        int type;
+        if (mat.channels() == 1) {
+            type = BufferedImage.TYPE_BYTE_GRAY;
+        } else if (mat.channels() == 3) {
+            type = BufferedImage.TYPE_3BYTE_BGR;
+        } else {
+            throw new UnsupportedOperationException("不支持转换的通道数： -->" + mat.channels());
+        }
+        // 截取的子矩阵内存不连续，需要先复制
+        Mat continuous = mat.isContinuous() ? mat : mat.clone();
+        BufferedImage image = new BufferedImage(mat.width(), mat.height(), type);
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        continuous.get(0, 0, data);
+        if (continuous != mat) {
+            continuous.release();
+        }
+        return image;
+    }
+
     /**
      *  将图片转换为BufferedImage.TYPE_3BYTE_BGR
      *
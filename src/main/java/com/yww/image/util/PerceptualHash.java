@@ -0,0 +1,102 @@
+package com.yww.image.util;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ *      图片感知哈希
+ *      用于判断两张图片是否为近似重复（例如同一页的重复扫描），两个哈希的汉明距离越小越相似
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class PerceptualHash {
+
+    /**
+     * 差异哈希（dHash）
+     * 缩放为9x8的灰度图，比较每行相邻像素的大小得到64位哈希，计算速度最快
+     *
+     * @param mat   图像矩阵
+     * @return      64位哈希
+     */
+    public static long dHash(Mat mat) {
+        Mat gray = ImageUtil.gray(mat);
+        Mat small = new Mat();
+        Imgproc.resize(gray, small, new Size(9, 8), 0, 0, Imgproc.INTER_AREA);
+        gray.release();
+
+        byte[] pixels = new byte[72];
+        small.get(0, 0, pixels);
+        small.release();
+
+        long hash = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int left = pixels[row * 9 + col] & 0xff;
+                int right = pixels[row * 9 + col + 1] & 0xff;
+                hash = (hash << 1) | (left < right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 感知哈希（pHash）
+     * 缩放为32x32的灰度图后做离散余弦变换，取左上角8x8的低频系数与中位数比较得到64位哈希，
+     * 对亮度、轻微缩放和压缩更稳定
+     *
+     * @param mat   图像矩阵
+     * @return      64位哈希
+     */
+    public static long pHash(Mat mat) {
+        Mat gray = ImageUtil.gray(mat);
+        Mat small = new Mat();
+        Imgproc.resize(gray, small, new Size(32, 32), 0, 0, Imgproc.INTER_AREA);
+        gray.release();
+
+        Mat floatMat = new Mat();
+        small.convertTo(floatMat, CvType.CV_32F);
+        small.release();
+        Mat dct = new Mat();
+        Core.dct(floatMat, dct);
+        floatMat.release();
+
+        float[] coefficients = new float[64];
+        float[] row = new float[8];
+        for (int i = 0; i < 8; i++) {
+            dct.get(i, 0, row);
+            System.arraycopy(row, 0, coefficients, i * 8, 8);
+        }
+        dct.release();
+
+        // 直流分量不参与中位数计算
+        float[] sorted = Arrays.copyOfRange(coefficients, 1, 64);
+        Arrays.sort(sorted);
+        float median = sorted[sorted.length / 2];
+
+        long hash = 0;
+        for (float coefficient : coefficients) {
+            hash = (hash << 1) | (coefficient > median ? 1 : 0);
+        }
+        return hash;
+    }
+
+    /**
+     * 计算两个哈希的汉明距离
+     *
+     * @param hash1 哈希1
+     * @param hash2 哈希2
+     * @return      不同的位数
+     */
+    public static int distance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+}
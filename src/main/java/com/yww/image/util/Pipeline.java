@@ -0,0 +1,335 @@
+package com.yww.image.util;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ *      图像处理算子图
+ *      处理流程声明为节点（灰度化、缩小、模糊、Canny、形态学、霍夫变换），参数相同的节点视为同一个节点，
+ *      一次运行中每个节点只计算一次；不同的运行之间不共享结果，需要共用中间结果的多个输出应放在同一次运行中。
+ *      中间结果在最后一个使用者计算完后放回缓冲池，
+ *      作为后续节点的输出缓冲（尺寸和类型相同时OpenCV不会重新分配），不做防御性的clone
+ * </p>
+ * <pre>
+ *  Pipeline.Node edges = Pipeline.source().gray().erode(5).dilate(5).canny(50, 150);
+ *  Pipeline.Node lines = edges.houghLinesP(1, Math.PI / 180, 90, 100, 10);
+ *  try (Pipeline.Result res = Pipeline.run(src, lines)) {
+ *      Mat mat = res.get(lines);
+ *  }
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class Pipeline {
+
+    private static final Node SOURCE = new Node("src", Collections.emptyList(), null);
+
+    /**
+     * 输入图片节点
+     *
+     * @return  输入节点
+     */
+    public static Node source() {
+        return SOURCE;
+    }
+
+    /**
+     * 运行算子图，只计算输出节点依赖的节点
+     *
+     * @param src       输入图片，不会被修改或释放
+     * @param outputs   需要的输出节点
+     * @return          运行结果，关闭时释放输出
+     */
+    public static Result run(Mat src, Node... outputs) {
+        // 按依赖顺序排列所有节点，key相同的节点只保留一个
+        Map<String, Node> ordered = new LinkedHashMap<>();
+        for (Node output : outputs) {
+            collect(output, ordered);
+        }
+        // 每个节点结果的剩余使用次数，输出节点额外保留一次
+        Map<String, Integer> uses = new HashMap<>();
+        for (Node node : ordered.values()) {
+            for (Node input : node.inputs) {
+                uses.merge(input.key, 1, Integer::sum);
+            }
+        }
+        for (Node output : outputs) {
+            uses.merge(output.key, 1, Integer::sum);
+        }
+
+        Map<String, Mat> values = new HashMap<>();
+        // 同一个Mat可能是多个节点的结果（例如单通道图片的灰度化），按Mat统计剩余使用次数；输入图片不统计，也不会放回缓冲池
+        Map<Mat, Integer> remaining = new IdentityHashMap<>();
+        Deque<Mat> pool = new ArrayDeque<>();
+        values.put(SOURCE.key, src);
+        try {
+            for (Node node : ordered.values()) {
+                if (node == SOURCE || values.containsKey(node.key)) {
+                    continue;
+                }
+                List<Mat> inputs = new ArrayList<>(node.inputs.size());
+                for (Node input : node.inputs) {
+                    inputs.add(values.get(input.key));
+                }
+                boolean fresh = pool.isEmpty();
+                Mat dst = fresh ? new Mat() : pool.poll();
+                Mat res = node.operator.apply(inputs, dst);
+                if (res != dst) {
+                    pool.push(dst);
+                } else if (fresh) {
+                    MatScope.register(res);
+                }
+                values.put(node.key, res);
+                if (res != src) {
+                    remaining.merge(res, uses.getOrDefault(node.key, 0), Integer::sum);
+                }
+                for (Mat input : inputs) {
+                    if (input != src && remaining.merge(input, -1, Integer::sum) == 0) {
+                        pool.push(input);
+                    }
+                }
+            }
+            Map<String, Mat> results = new HashMap<>();
+            for (Node output : outputs) {
+                results.put(output.key, values.get(output.key));
+            }
+            return new Result(src, results);
+        } finally {
+            for (Mat mat : pool) {
+                mat.release();
+            }
+        }
+    }
+
+    private static void collect(Node node, Map<String, Node> ordered) {
+        if (ordered.containsKey(node.key)) {
+            return;
+        }
+        for (Node input : node.inputs) {
+            collect(input, ordered);
+        }
+        ordered.put(node.key, node);
+    }
+
+    /**
+     * 节点的计算
+     */
+    private interface Operator {
+        /**
+         * 计算节点
+         *
+         * @param inputs    输入节点的结果
+         * @param dst       输出缓冲
+         * @return          结果，一般为dst，直接使用输入时返回输入
+         */
+        Mat apply(List<Mat> inputs, Mat dst);
+    }
+
+    /**
+     * 算子图节点，由输入节点和参数确定，参数相同的节点key相同
+     */
+    public static class Node {
+
+        private final String key;
+
+        private final List<Node> inputs;
+
+        private final Operator operator;
+
+        private Node(String key, List<Node> inputs, Operator operator) {
+            this.key = key;
+            this.inputs = inputs;
+            this.operator = operator;
+        }
+
+        private Node then(String name, Operator operator) {
+            return new Node(name + "<-" + key, Collections.singletonList(this), operator);
+        }
+
+        /**
+         * 灰度化，单通道图片直接使用输入，四通道图片去掉Alpha
+         */
+        public Node gray() {
+            return then("gray", (in, dst) -> {
+                Mat src = in.get(0);
+                int channels = src.channels();
+                if (channels == 1) {
+                    return src;
+                }
+                Imgproc.cvtColor(src, dst, channels == 4 ? Imgproc.COLOR_BGRA2GRAY : Imgproc.COLOR_BGR2GRAY);
+                return dst;
+            });
+        }
+
+        /**
+         * 按倍数缩小，倍数不大于1时直接使用输入
+         *
+         * @param factor    缩小倍数
+         */
+        public Node shrink(int factor) {
+            return then("shrink(" + factor + ")", (in, dst) -> {
+                if (factor <= 1) {
+                    return in.get(0);
+                }
+                Imgproc.resize(in.get(0), dst, new Size(), 1.0 / factor, 1.0 / factor, Imgproc.INTER_AREA);
+                return dst;
+            });
+        }
+
+        /**
+         * 高斯模糊
+         *
+         * @param size  核大小，奇数
+         */
+        public Node blur(int size) {
+            return then("blur(" + size + ")", (in, dst) -> {
+                Imgproc.GaussianBlur(in.get(0), dst, new Size(size, size), 0, 0);
+                return dst;
+            });
+        }
+
+        /**
+         * Canny边缘检测，aperture为3
+         */
+        public Node canny(double threshold1, double threshold2) {
+            return canny(threshold1, threshold2, 3);
+        }
+
+        /**
+         * Canny边缘检测
+         */
+        public Node canny(double threshold1, double threshold2, int apertureSize) {
+            return then("canny(" + threshold1 + "," + threshold2 + "," + apertureSize + ")", (in, dst) -> {
+                Imgproc.Canny(in.get(0), dst, threshold1, threshold2, apertureSize);
+                return dst;
+            });
+        }
+
+        /**
+         * 使用矩形核腐蚀
+         */
+        public Node erode(int size) {
+            return morph(Imgproc.MORPH_ERODE, size, 1);
+        }
+
+        /**
+         * 使用矩形核膨胀
+         */
+        public Node dilate(int size) {
+            return morph(Imgproc.MORPH_DILATE, size, 1);
+        }
+
+        /**
+         * 形态学操作，使用矩形核
+         *
+         * @param op            Imgproc.MORPH_*
+         * @param size          核大小
+         * @param iterations    迭代次数
+         */
+        public Node morph(int op, int size, int iterations) {
+            return then("morph(" + op + "," + size + "," + iterations + ")", (in, dst) -> {
+                Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(size, size));
+                Imgproc.morphologyEx(in.get(0), dst, op, kernel, new Point(-1, -1), iterations);
+                kernel.release();
+                return dst;
+            });
+        }
+
+        /**
+         * 概率霍夫变换，结果为CV_32SC4的线段（x1, y1, x2, y2）
+         */
+        public Node houghLinesP(double rho, double theta, int threshold, double minLineLength, double maxLineGap) {
+            String name = "houghP" + Arrays.toString(new double[]{rho, theta, threshold, minLineLength, maxLineGap});
+            return then(name, (in, dst) -> {
+                Imgproc.HoughLinesP(in.get(0), dst, rho, theta, threshold, minLineLength, maxLineGap);
+                return dst;
+            });
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node && ((Node) o).key.equals(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+
+    /**
+     * 运行结果
+     */
+    public static class Result implements AutoCloseable {
+
+        private final Mat src;
+
+        private final Map<String, Mat> values;
+
+        private Result(Mat src, Map<String, Mat> values) {
+            this.src = src;
+            this.values = values;
+        }
+
+        /**
+         * 获取输出节点的结果，由Result释放
+         *
+         * @param node  输出节点
+         * @return      结果
+         */
+        public Mat get(Node node) {
+            Mat mat = values.get(node.key);
+            if (mat == null) {
+                throw new IllegalArgumentException("不是输出节点：" + node);
+            }
+            return mat;
+        }
+
+        /**
+         * 取出输出节点的结果，由调用方释放；结果为输入图片本身时返回副本
+         *
+         * @param node  输出节点
+         * @return      结果
+         */
+        public Mat take(Node node) {
+            Mat mat = get(node);
+            values.remove(node.key);
+            if (mat == src || values.containsValue(mat)) {
+                return mat.clone();
+            }
+            return mat;
+        }
+
+        @Override
+        public void close() {
+            Map<Mat, Boolean> released = new IdentityHashMap<>();
+            for (Mat mat : values.values()) {
+                if (mat != src && released.put(mat, Boolean.TRUE) == null) {
+                    mat.release();
+                }
+            }
+            values.clear();
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.yww.image.util;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *      图片像素预算
+ *      解码前只读取图片头获取宽高，估算处理时需要的本地内存，
+ *      超过单次请求上限的直接拒绝，超过全局预算的排队等待，等待超时后拒绝
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class PixelBudget {
+
+    /**
+     * 每个像素处理时大约需要的字节数：BGR原图3字节、灰度图1字节以及缩小图和中间结果
+     */
+    private static final int BYTES_PER_PIXEL = 5;
+
+    private final long requestLimit;
+
+    private final Semaphore global;
+
+    private final int globalPermits;
+
+    private final long waitMillis;
+
+    /**
+     * @param requestLimit  单次请求的内存上限（字节）
+     * @param globalLimit   所有请求的内存上限（字节）
+     * @param waitMillis    超过全局预算时的最长等待时间（毫秒）
+     */
+    public PixelBudget(long requestLimit, long globalLimit, long waitMillis) {
+        this.requestLimit = requestLimit;
+        // 信号量以KB为单位，避免超出int范围
+        this.globalPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, globalLimit / 1024));
+        this.global = new Semaphore(globalPermits, true);
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * 根据图片头估算内存并申请预算
+     *
+     * @param bytes     图片文件内容
+     * @return          预算许可，处理完成后关闭
+     */
+    public Permit admit(byte[] bytes) {
+        Dimension size = readSize(bytes);
+        long estimate = (long) size.width * size.height * BYTES_PER_PIXEL;
+        if (estimate > requestLimit) {
+            throw new BudgetExceededException("图片过大：" + size.width + "x" + size.height
+                    + "，预计需要" + estimate / 1024 / 1024 + "MB内存");
+        }
+        int permits = (int) Math.min(globalPermits, Math.max(1, estimate / 1024));
+        try {
+            if (!global.tryAcquire(permits, waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new BudgetExceededException("服务繁忙，等待内存预算超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BudgetExceededException("等待内存预算被中断");
+        }
+        return new Permit(permits, estimate);
+    }
+
+    /**
+     * 全局预算剩余的字节数
+     *
+     * @return  字节数
+     */
+    public long availableBytes() {
+        return (long) global.availablePermits() * 1024;
+    }
+
+    /**
+     * 只读取图片头获取宽高
+     *
+     * @param bytes     图片文件内容
+     * @return          宽高
+     */
+    public static Dimension readSize(byte[] bytes) {
+        Dimension size;
+        try {
+            size = ImageHeader.readSize(bytes);
+        } catch (IOException e) {
+            throw new BudgetExceededException("无法读取图片头");
+        }
+        if (size == null) {
+            throw new BudgetExceededException("不支持的图片格式");
+        }
+        return size;
+    }
+
+    /**
+     * 预算许可
+     */
+    public class Permit implements AutoCloseable {
+
+        private final int permits;
+
+        private final long estimate;
+
+        private boolean closed;
+
+        private Permit(int permits, long estimate) {
+            this.permits = permits;
+            this.estimate = estimate;
+        }
+
+        /**
+         * 预计需要的内存
+         *
+         * @return  字节数
+         */
+        public long getEstimate() {
+            return estimate;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                global.release(permits);
+            }
+        }
+    }
+
+    /**
+     * 超出内存预算
+     */
+    public static class BudgetExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public BudgetExceededException(String message) {
+            super(message);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.yww.image.util;
+
+/**
+ * <p>
+ *      纯Java的像素计算
+ *      图片数据先整行或整块拷贝到Java数组，再在数组上计算，避免逐像素调用Mat.get。
+ *      该类为Java 8版本，直接使用标量实现；jar为多版本jar（Multi-Release），
+ *      Java 17以上使用src/main/java17下的同名类，启动时加上--add-modules jdk.incubator.vector会使用向量实现
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public final class PixelKernels {
+
+    private PixelKernels() {
+    }
+
+    /**
+     * 是否使用向量实现
+     *
+     * @return  是否使用向量实现
+     */
+    public static boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * 无符号字节求和
+     *
+     * @param data      数据
+     * @param offset    起始位置
+     * @param length    长度
+     * @return          和
+     */
+    public static long sum(byte[] data, int offset, int length) {
+        return ScalarKernels.sum(data, offset, length);
+    }
+
+    /**
+     * 灰度直方图，累加到hist中
+     *
+     * @param data      数据
+     * @param offset    起始位置
+     * @param length    长度
+     * @param hist      长度为256的直方图
+     */
+    public static void histogram(byte[] data, int offset, int length, int[] hist) {
+        ScalarKernels.histogram(data, offset, length, hist);
+    }
+
+    /**
+     * 统计HSV红色范围内的像素数，h为(0, 10)或(156, 180)，s为(43, 255)，v为(46, 255)
+     *
+     * @param h         H通道
+     * @param s         S通道
+     * @param v         V通道
+     * @param length    像素数
+     * @return          红色像素数
+     */
+    public static int countRed(byte[] h, byte[] s, byte[] v, int length) {
+        return ScalarKernels.countRed(h, s, v, length);
+    }
+
+    /**
+     * 灰度值小于阈值的像素按位写入words，第x个像素对应words[wordOffset + x / 64]的第x % 64位
+     *
+     * @param gray          一行灰度值
+     * @param length        像素数
+     * @param threshold     阈值
+     * @param words         位数组
+     * @param wordOffset    该行在位数组中的起始位置
+     */
+    public static void packBelow(byte[] gray, int length, int threshold, long[] words, int wordOffset) {
+        ScalarKernels.packBelow(gray, length, threshold, words, wordOffset);
+    }
+
+    /**
+     * 亮度（0.299R + 0.587G + 0.114B）小于阈值的像素按位写入words，位的排列同 {@link #packBelow}
+     *
+     * @param rgb           一行RGB值
+     * @param length        像素数
+     * @param cutOff        亮度阈值
+     * @param words         位数组
+     * @param wordOffset    该行在位数组中的起始位置
+     */
+    public static void packLuminanceBelow(int[] rgb, int length, int cutOff, long[] words, int wordOffset) {
+        ScalarKernels.packLuminanceBelow(rgb, length, cutOff, words, wordOffset);
+    }
+
+}
@@ -32,25 +32,18 @@ public class RemoveBlackUtil {
         if(img.empty()){
             return;
         }
-        Mat greyImg = img.clone();
-        //1.彩色转灰色
-        Imgproc.cvtColor(img, greyImg, Imgproc.COLOR_BGR2GRAY);
-        OpencvUtil.saveImage(greyImg, "C:\\Users\\11419\\Desktop\\test\\1.jpg");
-
-        Mat gaussianBlurImg = greyImg.clone();
-        // 2.高斯滤波，降噪
-        Imgproc.GaussianBlur(greyImg, gaussianBlurImg, new Size(3,3),0);
-        OpencvUtil.saveImage(greyImg, "C:\\Users\\11419\\Desktop\\test\\2.jpg");
-
-        // 3.Canny边缘检测
-        Mat cannyImg = gaussianBlurImg.clone();
-        Imgproc.Canny(gaussianBlurImg, cannyImg, 50, 200);
-        OpencvUtil.saveImage(cannyImg, "C:\\Users\\11419\\Desktop\\test\\3.jpg");
-
-        // 4.膨胀，连接边缘
-        Mat dilateImg = cannyImg.clone();
-        Imgproc.dilate(cannyImg, dilateImg, new Mat(), new Point(-1, -1), 3, 1, new Scalar(1));
-        OpencvUtil.saveImage(dilateImg, "C:\\Users\\11419\\Desktop\\test\\4.jpg");
+        //1.彩色转灰色 2.高斯滤波，降噪 3.Canny边缘检测 4.膨胀，连接边缘
+        Pipeline.Node grey = Pipeline.source().gray();
+        Pipeline.Node canny = grey.blur(3).canny(50, 200);
+        Pipeline.Node dilate = canny.morph(Imgproc.MORPH_DILATE, 3, 3);
+        Mat dilateImg;
+        try (Pipeline.Result steps = Pipeline.run(img, grey, canny, dilate)) {
+            OpencvUtil.saveImage(steps.get(grey), "C:\\Users\\11419\\Desktop\\test\\1.jpg");
+            OpencvUtil.saveImage(steps.get(grey), "C:\\Users\\11419\\Desktop\\test\\2.jpg");
+            OpencvUtil.saveImage(steps.get(canny), "C:\\Users\\11419\\Desktop\\test\\3.jpg");
+            dilateImg = steps.take(dilate);
+            OpencvUtil.saveImage(dilateImg, "C:\\Users\\11419\\Desktop\\test\\4.jpg");
+        }
 
         //5.对边缘检测的结果图再进行轮廓提取
         List<MatOfPoint> contours = new ArrayList<>();
@@ -8,7 +8,8 @@ import org.opencv.imgproc.Imgproc;
 /**
  * <p>
  *      去黑边
- *      扫描图片四周像素，判断每行或每列的平均灰度值，若是接近黑色直接去除
+ *      扫描图片四周像素，每行或每列的平均灰度低于阈值时视为黑边并去除；
+ *      也可以按黑色像素占比判断，适用于黑边中夹有少量亮噪点的扫描件
  * </p>
  *
  * @author yww
@@ -21,6 +22,11 @@ public class RemoveBlackUtil2 {
      */
     private static final Integer BLACK_VALUE = 100;
 
+    /**
+     * 按占比判断时，黑色像素占比超过该值的行列视为黑边
+     */
+    private static final double BLACK_RATIO = 0.6;
+
     public static void remove(String src, String dst) {
         Mat mat = Imgcodecs.imread(src);
         Mat res = removeBlackEdge(mat);
@@ -35,85 +41,127 @@ public class RemoveBlackUtil2 {
      * @param srcMat 预去除黑边的Mat
      * @return 去除黑边之后的Mat
      */
-    private static Mat removeBlackEdge(Mat srcMat) {
+    public static Mat removeBlackEdge(Mat srcMat) {
         return removeBlackEdge(srcMat, BLACK_VALUE);
     }
 
     /**
      * 去除图片黑边，若无黑边，则原图返回。
+     * 灰度图只拷贝一次，一次遍历得到每行每列的灰度和，平均灰度低于阈值的行列视为黑边
      *
      * @param blackValue 一般低于5的已经是很黑的颜色了
      * @param srcMat     源Mat对象
      * @return Mat对象
      */
     private static Mat removeBlackEdge(Mat srcMat, int blackValue) {
-        // 灰度化
         Mat grayMat = gray(srcMat);
+        int width = grayMat.width();
+        int height = grayMat.height();
+        byte[] data = new byte[width * height];
+        grayMat.get(0, 0, data);
+        grayMat.release();
+
+        long[] colSums = new long[width];
+        boolean[] blackRows = new boolean[height];
+        for (int row = 0; row < height; row++) {
+            int offset = row * width;
+            blackRows[row] = PixelKernels.sum(data, offset, width) / width < blackValue;
+            for (int col = 0; col < width; col++) {
+                colSums[col] += data[offset + col] & 0xFF;
+            }
+        }
+        boolean[] blackCols = new boolean[width];
+        for (int col = 0; col < width; col++) {
+            blackCols[col] = colSums[col] / height < blackValue;
+        }
+        return crop(srcMat, blackRows, blackCols);
+    }
+
+    /**
+     * 按黑色像素占比去除图片黑边，若无黑边，则原图返回。
+     * 灰度值低于 {@code BLACK_VALUE} 的像素为黑色，黑色像素占比超过 {@code BLACK_RATIO} 的行列视为黑边
+     *
+     * @param srcMat 预去除黑边的Mat
+     * @return 去除黑边之后的Mat
+     */
+    public static Mat removeBlackEdgeByRatio(Mat srcMat) {
+        // 灰度化并二值化
+        Mat grayMat = gray(srcMat);
+        BinaryImage binary = BinaryImage.fromGray(grayMat, BLACK_VALUE);
+        grayMat.release();
+        int width = binary.getWidth();
+        int height = binary.getHeight();
+        int rowLimit = (int) (width * BLACK_RATIO);
+        int colLimit = (int) (height * BLACK_RATIO);
+        int[] rows = binary.rowCounts();
+        int[] cols = binary.columnCounts();
+
+        boolean[] blackRows = new boolean[height];
+        for (int row = 0; row < height; row++) {
+            blackRows[row] = rows[row] > rowLimit;
+        }
+        boolean[] blackCols = new boolean[width];
+        for (int col = 0; col < width; col++) {
+            blackCols[col] = cols[col] > colLimit;
+        }
+        return crop(srcMat, blackRows, blackCols);
+    }
+
+    /**
+     * 从四周向内去除连续的黑边行列
+     *
+     * @param srcMat    源Mat对象
+     * @param blackRows 每一行是否为黑边
+     * @param blackCols 每一列是否为黑边
+     * @return 去除黑边之后的Mat，若无黑边，则原图返回
+     */
+    private static Mat crop(Mat srcMat, boolean[] blackRows, boolean[] blackCols) {
+        int width = blackCols.length;
+        int height = blackRows.length;
+
         // 定义边界
         int topRow = 0;
         int leftCol = 0;
-        int rightCol = grayMat.width() - 1;
-        int bottomRow = grayMat.height() - 1;
+        int rightCol = width - 1;
+        int bottomRow = height - 1;
 
         // 上方黑边判断
-        for (int row = 0; row < grayMat.height(); row++) {
-            if (sum(grayMat.row(row)) / grayMat.width() < blackValue) {
+        for (int row = 0; row < height; row++) {
+            if (blackRows[row]) {
                 topRow = row;
             } else {
                 break;
             }
         }
         // 左边黑边判断
-        for (int col = 0; col < grayMat.width(); col++) {
-            if (sum(grayMat.col(col)) / grayMat.height() < blackValue) {
+        for (int col = 0; col < width; col++) {
+            if (blackCols[col]) {
                 leftCol = col;
             } else {
                 break;
             }
         }
         // 右边黑边判断
-        for (int col = grayMat.width() - 1; col > 0; col--) {
-            if (sum(grayMat.col(col)) / grayMat.height() < blackValue) {
+        for (int col = width - 1; col > 0; col--) {
+            if (blackCols[col]) {
                 rightCol = col;
             } else {
                 break;
             }
         }
         // 下方黑边判断
-        for (int row = grayMat.height() - 1; row > 0; row--) {
-            if (sum(grayMat.row(row)) / grayMat.width() < blackValue) {
+        for (int row = height - 1; row > 0; row--) {
+            if (blackRows[row]) {
                 bottomRow = row;
             } else {
                 break;
             }
         }
 
-        int x = leftCol;
-        int y = topRow;
-        int width = rightCol - leftCol;
-        int height = bottomRow - topRow;
-
-        grayMat.release();
-        if (leftCol == 0 && rightCol == grayMat.width() - 1 && topRow == 0 && bottomRow == grayMat.height() - 1) {
+        if (leftCol == 0 && rightCol == width - 1 && topRow == 0 && bottomRow == height - 1) {
             return srcMat;
         }
-        return cut(srcMat, x, y, width, height);
-    }
-
-    /**
-     * 像素求和
-     *
-     * @param mat mat
-     * @return sum
-     */
-    public static int sum(Mat mat) {
-        int sum = 0;
-        for (int row = 0; row < mat.height(); row++) {
-            for (int col = 0; col < mat.width(); col++) {
-                sum += (int) mat.get(row, col)[0];
-            }
-        }
-        return sum;
+        return cut(srcMat, leftCol, topRow, rightCol - leftCol, bottomRow - topRow);
     }
 
     /**
@@ -0,0 +1,67 @@
+package com.yww.image.util;
+
+/**
+ * <p>
+ *      像素计算的标量实现
+ *      Java 8使用该实现，Java 17以上没有加载jdk.incubator.vector模块时也回退到该实现，
+ *      向量实现的结果必须与该实现完全一致
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+final class ScalarKernels {
+
+    private ScalarKernels() {
+    }
+
+    static long sum(byte[] data, int offset, int length) {
+        long sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += data[i] & 0xff;
+        }
+        return sum;
+    }
+
+    static void histogram(byte[] data, int offset, int length, int[] hist) {
+        for (int i = offset; i < offset + length; i++) {
+            hist[data[i] & 0xff]++;
+        }
+    }
+
+    static int countRed(byte[] h, byte[] s, byte[] v, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (isRed(h[i] & 0xff, s[i] & 0xff, v[i] & 0xff)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static boolean isRed(int hue, int saturation, int value) {
+        return ((hue > 0 && hue < 10) || (hue > 156 && hue < 180))
+                && saturation > 43 && saturation < 255
+                && value > 46 && value < 255;
+    }
+
+    static void packBelow(byte[] gray, int length, int threshold, long[] words, int wordOffset) {
+        for (int x = 0; x < length; x++) {
+            if ((gray[x] & 0xff) < threshold) {
+                words[wordOffset + (x >>> 6)] |= 1L << x;
+            }
+        }
+    }
+
+    static void packLuminanceBelow(int[] rgb, int length, int cutOff, long[] words, int wordOffset) {
+        int limit = cutOff * 1000;
+        for (int x = 0; x < length; x++) {
+            int pixel = rgb[x];
+            int luminance = ((pixel >> 16) & 0xff) * 299 + ((pixel >> 8) & 0xff) * 587 + (pixel & 0xff) * 114;
+            if (luminance < limit) {
+                words[wordOffset + (x >>> 6)] |= 1L << x;
+            }
+        }
+    }
+
+}
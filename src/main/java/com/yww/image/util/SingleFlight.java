@@ -0,0 +1,133 @@
+package com.yww.image.util;
+
+import cn.hutool.crypto.digest.DigestUtil;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ *      合并并发的相同请求
+ *      同一个key同时只有一个请求在计算，其余请求等待并共享同一个结果（或同一个异常，中断除外），
+ *      计算完成后立即移除，之后的请求重新计算，不做结果缓存
+ * </p>
+ * <pre>
+ *  String key = SingleFlight.key("analysis", bytes);
+ *  Analysis.Result res = flight.execute(key, () -> Analysis.analyze(name, bytes));
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class SingleFlight<V> {
+
+    private final Map<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executed = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * 根据操作名、文件内容和参数生成key
+     *
+     * @param operation 操作名
+     * @param content   文件内容
+     * @param params    影响结果的参数
+     * @return          key
+     */
+    public static String key(String operation, byte[] content, Object... params) {
+        return operation + ":" + DigestUtil.sha256Hex(content) + ":" + Arrays.toString(params);
+    }
+
+    /**
+     * 执行计算，相同key正在计算时等待其结果
+     * 计算的线程被中断（例如客户端断开后取消）而失败时，中断异常只抛给它自己，
+     * 等待的请求不共享这个异常，由其中一个重新计算
+     *
+     * @param key       请求key
+     * @param supplier  计算过程
+     * @return          计算结果
+     */
+    public V execute(String key, Supplier<V> supplier) {
+        while (true) {
+            CompletableFuture<V> future = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                return compute(key, future, supplier);
+            }
+            coalesced.incrementAndGet();
+            try {
+                return await(existing);
+            } catch (CancellationException e) {
+                // 计算的线程被中断，没有共享到结果，重新竞争计算
+                coalesced.decrementAndGet();
+            }
+        }
+    }
+
+    private V compute(String key, CompletableFuture<V> future, Supplier<V> supplier) {
+        executed.incrementAndGet();
+        V res;
+        try {
+            res = supplier.get();
+        } catch (RuntimeException | Error e) {
+            // 先移除再完成，重新计算的请求不会再取到这个结果
+            inFlight.remove(key, future);
+            if (Thread.currentThread().isInterrupted()) {
+                future.cancel(false);
+            } else {
+                future.completeExceptionally(e);
+            }
+            throw e;
+        }
+        inFlight.remove(key, future);
+        future.complete(res);
+        return res;
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待合并的请求被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * 实际执行计算的次数
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * 被合并、直接共享结果的请求数
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * 正在计算的key数量
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+}
@@ -0,0 +1,265 @@
+package com.yww.image.util;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ *      文档倾斜角估计
+ *      霍夫直线投票：按线段长度加权投到0.1度一格的直方图，对峰值做抛物线插值得到小于1度的精度
+ *      投影法：在缩小并二值化的图片上搜索角度，使文字行的水平投影最集中
+ *      倾斜角统一折算到[-45, 45)度，与atan2(dy, dx)的方向一致
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class SkewEstimator {
+
+    /**
+     * 最大倾斜角
+     */
+    private static final double MAX_ANGLE = 45;
+
+    /**
+     * 直方图每格的角度
+     */
+    private static final double BIN_SIZE = 0.1;
+
+    /**
+     * 直方图格数
+     */
+    private static final int BINS = (int) Math.round(2 * MAX_ANGLE / BIN_SIZE);
+
+    /**
+     * 投影法缩小后图片的最长边
+     */
+    private static final int PROJECTION_SIZE = 1000;
+
+    /**
+     * 投影法最多使用的前景点数
+     */
+    private static final int MAX_POINTS = 200_000;
+
+    /**
+     * 根据HoughLinesP得到的线段估计倾斜角
+     *
+     * @param lines     HoughLinesP的输出，每行为[x1, y1, x2, y2]
+     * @return          倾斜角和置信度
+     */
+    public static Result hough(Mat lines) {
+        double[] histogram = new double[BINS];
+        double total = 0;
+        int[] line = new int[4];
+        for (int i = 0; i < lines.rows(); i++) {
+            lines.get(i, 0, line);
+            double dx = line[2] - line[0];
+            double dy = line[3] - line[1];
+            double length = Math.sqrt(dx * dx + dy * dy);
+            if (length < 1e-4) {
+                continue;
+            }
+            int bin = bin(fold(Math.toDegrees(Math.atan2(dy, dx))));
+            histogram[bin] += length;
+            total += length;
+        }
+        if (total == 0) {
+            return new Result(0, 0);
+        }
+
+        // 5格（0.5度）窗口平滑，避免噪声线段造成的尖峰
+        double[] smooth = smooth(histogram, 2);
+        int peak = argmax(smooth);
+        double angle = -MAX_ANGLE + (peak + 0.5 + interpolate(smooth, peak)) * BIN_SIZE;
+
+        // 峰值附近正负0.5度内的线段长度占比作为置信度
+        double support = 0;
+        for (int i = Math.max(0, peak - 5); i <= Math.min(BINS - 1, peak + 5); i++) {
+            support += histogram[i];
+        }
+        return new Result(angle, support / total);
+    }
+
+    /**
+     * 投影法估计倾斜角
+     *
+     * @param gray      灰度图
+     * @param maxAngle  搜索的最大角度
+     * @return          倾斜角和置信度
+     */
+    public static Result projection(Mat gray, double maxAngle) {
+        // 缩小并二值化，文字为前景
+        double scale = Math.min(1.0, (double) PROJECTION_SIZE / Math.max(gray.width(), gray.height()));
+        Mat small = new Mat();
+        Imgproc.resize(gray, small, new Size(), scale, scale, Imgproc.INTER_AREA);
+        BinaryImage binary = BinaryImage.fromGray(small);
+        small.release();
+
+        int width = binary.getWidth();
+        int height = binary.getHeight();
+        // 前景点太多时等间隔抽样
+        int count = binary.count();
+        int stride = Math.max(1, (count + MAX_POINTS - 1) / MAX_POINTS);
+        int[] xs = new int[Math.min(count, MAX_POINTS)];
+        int[] ys = new int[xs.length];
+        int[] state = new int[2];
+        binary.forEachSet(0, height, (x, y) -> {
+            // state[0]为已抽样数，state[1]为已遍历数
+            if (state[0] < xs.length && state[1]++ % stride == 0) {
+                xs[state[0]] = x;
+                ys[state[0]] = y;
+                state[0]++;
+            }
+        });
+        int n = state[0];
+        if (n == 0) {
+            return new Result(0, 0);
+        }
+
+        int[] histogram = new int[width + height + 2];
+        // 粗搜索，步长0.5度
+        double coarseStep = 0.5;
+        double best = 0;
+        double bestScore = -1;
+        double scoreSum = 0;
+        int steps = 0;
+        for (double angle = -maxAngle; angle <= maxAngle; angle += coarseStep) {
+            double score = score(xs, ys, n, angle, width, histogram);
+            scoreSum += score;
+            steps++;
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+        // 细搜索，步长0.05度
+        double fineStep = 0.05;
+        int fineCount = (int) Math.round(2 * coarseStep / fineStep) + 1;
+        double[] fine = new double[fineCount];
+        for (int i = 0; i < fineCount; i++) {
+            fine[i] = score(xs, ys, n, best - coarseStep + i * fineStep, width, histogram);
+        }
+        int peak = argmax(fine);
+        double angle = best - coarseStep + (peak + interpolate(fine, peak)) * fineStep;
+
+        // 峰值相对平均得分越突出越可信
+        double confidence = bestScore <= 0 ? 0 : 1 - (scoreSum / steps) / bestScore;
+        return new Result(angle, Math.max(0, Math.min(1, confidence)));
+    }
+
+    /**
+     * 按角度旋转前景点后做水平投影，返回投影的平方和，文字行越集中得分越高
+     */
+    private static double score(int[] xs, int[] ys, int n, double angle, int width, int[] histogram) {
+        Arrays.fill(histogram, 0);
+        double radians = Math.toRadians(angle);
+        double sin = Math.sin(radians);
+        double cos = Math.cos(radians);
+        for (int i = 0; i < n; i++) {
+            int index = (int) Math.round(ys[i] * cos - xs[i] * sin) + width + 1;
+            if (index >= 0 && index < histogram.length) {
+                histogram[index]++;
+            }
+        }
+        double score = 0;
+        for (int value : histogram) {
+            score += (double) value * value;
+        }
+        return score;
+    }
+
+    /**
+     * 把角度折算到[-45, 45)度，竖线与横线的倾斜一致
+     */
+    private static double fold(double angle) {
+        while (angle >= MAX_ANGLE) {
+            angle -= 90;
+        }
+        while (angle < -MAX_ANGLE) {
+            angle += 90;
+        }
+        return angle;
+    }
+
+    private static int bin(double angle) {
+        int bin = (int) Math.floor((angle + MAX_ANGLE) / BIN_SIZE);
+        return Math.max(0, Math.min(BINS - 1, bin));
+    }
+
+    private static double[] smooth(double[] histogram, int radius) {
+        double[] res = new double[histogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            double sum = 0;
+            for (int j = Math.max(0, i - radius); j <= Math.min(histogram.length - 1, i + radius); j++) {
+                sum += histogram[j];
+            }
+            res[i] = sum;
+        }
+        return res;
+    }
+
+    private static int argmax(double[] values) {
+        int index = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[index]) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 抛物线插值，返回峰值相对peak格的偏移量，范围[-0.5, 0.5]
+     */
+    private static double interpolate(double[] values, int peak) {
+        if (peak == 0 || peak == values.length - 1) {
+            return 0;
+        }
+        double left = values[peak - 1];
+        double center = values[peak];
+        double right = values[peak + 1];
+        double denominator = left - 2 * center + right;
+        if (denominator == 0) {
+            return 0;
+        }
+        return Math.max(-0.5, Math.min(0.5, 0.5 * (left - right) / denominator));
+    }
+
+    /**
+     * 倾斜角估计结果
+     */
+    public static class Result {
+
+        /**
+         * 倾斜角（度）
+         */
+        private final double angle;
+
+        /**
+         * 置信度，0到1
+         */
+        private final double confidence;
+
+        public Result(double angle, double confidence) {
+            this.angle = angle;
+            this.confidence = confidence;
+        }
+
+        public double getAngle() {
+            return angle;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{angle=" + angle + ", confidence=" + confidence + "}";
+        }
+    }
+
+}
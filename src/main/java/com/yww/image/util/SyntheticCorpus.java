@@ -0,0 +1,366 @@
+package com.yww.image.util;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ *      合成带标注的测试图片
+ *      生成类似文档的图片（文字行、红色印章），再依次加上已知的倾斜角、透视变形、高斯模糊和黑边，
+ *      用于衡量各个算法加速前后的精度变化。分辨率任意，同一个种子生成的图片相同
+ * </p>
+ * <pre>
+ *  处理顺序：绘制文档 -> 印章 -> 旋转 -> 透视变形 -> 模糊 -> 黑边
+ * </pre>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+public class SyntheticCorpus {
+
+    private static final double[] SKEWS = {-10, -5, -2, -0.5, 0, 0.5, 2, 5, 10};
+
+    private static final double[] SIGMAS = {0, 0.8, 1.5, 3};
+
+    private static final int[] BORDERS = {0, 0, 20, 60};
+
+    private static final double[] PERSPECTIVES = {0, 0, 0.02, 0.05};
+
+    /**
+     * 印章外边缘的采样点数，相邻两点间的弦与圆弧的偏差不到半径的0.1%
+     */
+    private static final int OUTLINE_POINTS = 72;
+
+    /**
+     * 随机生成一组图片参数
+     *
+     * @param count     图片数量
+     * @param width     图片宽度，高度按A4比例
+     * @param seed      随机种子
+     * @return          图片参数
+     */
+    public static List<Spec> specs(int count, int width, long seed) {
+        Random random = new Random(seed);
+        List<Spec> res = new ArrayList<>();
+        int height = (int) Math.round(width * Math.sqrt(2));
+        for (int i = 0; i < count; i++) {
+            Spec spec = new Spec(width, height, random.nextLong());
+            spec.skew = SKEWS[random.nextInt(SKEWS.length)];
+            spec.sigma = SIGMAS[random.nextInt(SIGMAS.length)];
+            int border = BORDERS[random.nextInt(BORDERS.length)] * width / 1240;
+            // 上右下左，宽度各不相同
+            spec.borders = new int[]{border, border / 2, border, border * 3 / 2};
+            spec.stamp = random.nextBoolean();
+            spec.perspective = PERSPECTIVES[random.nextInt(PERSPECTIVES.length)];
+            res.add(spec);
+        }
+        return res;
+    }
+
+    /**
+     * 按参数生成图片
+     *
+     * @param spec  图片参数
+     * @return      图片及标注
+     */
+    public static Sample generate(Spec spec) {
+        Random random = new Random(spec.seed);
+        int width = spec.width;
+        int height = spec.height;
+        Mat page = new Mat(height, width, CvType.CV_8UC3, new Scalar(255, 255, 255));
+        drawText(page, random);
+
+        // 印章外边缘上的点，随后跟着图片一起变换，变换后的外接矩形就是印章的位置
+        List<Point> stampOutline = null;
+        if (spec.stamp) {
+            stampOutline = drawStamp(page, random);
+        }
+
+        // 旋转，正数为顺时针，与Deskew的角度一致
+        Mat rotation = Imgproc.getRotationMatrix2D(new Point(width / 2.0, height / 2.0), -spec.skew, 1);
+        Mat rotated = new Mat();
+        Imgproc.warpAffine(page, rotated, rotation, page.size(), Imgproc.INTER_LINEAR,
+                Core.BORDER_CONSTANT, new Scalar(255, 255, 255));
+        page.release();
+        if (stampOutline != null) {
+            stampOutline = affine(rotation, stampOutline);
+        }
+        rotation.release();
+
+        // 透视变形，四个角各自向内移动
+        Mat current = rotated;
+        if (spec.perspective > 0) {
+            double dx = width * spec.perspective;
+            double dy = height * spec.perspective;
+            MatOfPoint2f from = new MatOfPoint2f(new Point(0, 0), new Point(width, 0),
+                    new Point(width, height), new Point(0, height));
+            MatOfPoint2f to = new MatOfPoint2f(
+                    new Point(random.nextDouble() * dx, random.nextDouble() * dy),
+                    new Point(width - random.nextDouble() * dx, random.nextDouble() * dy),
+                    new Point(width - random.nextDouble() * dx, height - random.nextDouble() * dy),
+                    new Point(random.nextDouble() * dx, height - random.nextDouble() * dy));
+            Mat transform = Imgproc.getPerspectiveTransform(from, to);
+            Mat warped = new Mat();
+            Imgproc.warpPerspective(current, warped, transform, current.size(), Imgproc.INTER_LINEAR,
+                    Core.BORDER_CONSTANT, new Scalar(255, 255, 255));
+            current.release();
+            current = warped;
+            if (stampOutline != null) {
+                MatOfPoint2f src = new MatOfPoint2f(stampOutline.toArray(new Point[0]));
+                MatOfPoint2f dst = new MatOfPoint2f();
+                Core.perspectiveTransform(src, dst, transform);
+                stampOutline = dst.toList();
+                src.release();
+                dst.release();
+            }
+            from.release();
+            to.release();
+            transform.release();
+        }
+
+        if (spec.sigma > 0) {
+            Mat blurred = new Mat();
+            Imgproc.GaussianBlur(current, blurred, new Size(0, 0), spec.sigma);
+            current.release();
+            current = blurred;
+        }
+
+        int[] b = spec.borders;
+        Mat res = current;
+        if (b[0] > 0 || b[1] > 0 || b[2] > 0 || b[3] > 0) {
+            res = new Mat();
+            Core.copyMakeBorder(current, res, b[0], b[2], b[3], b[1], Core.BORDER_CONSTANT, new Scalar(0, 0, 0));
+            current.release();
+        }
+
+        Rect stampRect = null;
+        if (stampOutline != null) {
+            MatOfPoint2f outline = new MatOfPoint2f(stampOutline.toArray(new Point[0]));
+            stampRect = Imgproc.boundingRect(outline);
+            outline.release();
+            stampRect.x += b[3];
+            stampRect.y += b[0];
+        }
+        return new Sample(spec, res, stampRect);
+    }
+
+    /**
+     * 随机的文字行，行与行之间留白，左右留出页边距
+     */
+    private static void drawText(Mat page, Random random) {
+        int width = page.width();
+        int height = page.height();
+        double scale = width / 1240.0;
+        double fontScale = 0.9 * scale;
+        int thickness = Math.max(1, (int) Math.round(2 * scale));
+        int lineHeight = (int) Math.round(40 * scale);
+        int margin = width / 10;
+        StringBuilder line = new StringBuilder();
+        for (int y = margin; y < height - margin; y += lineHeight) {
+            // 偶尔空一行作为段落间隔
+            if (random.nextInt(8) == 0) {
+                continue;
+            }
+            line.setLength(0);
+            int words = 6 + random.nextInt(6);
+            for (int i = 0; i < words; i++) {
+                int length = 2 + random.nextInt(8);
+                for (int j = 0; j < length; j++) {
+                    line.append((char) ('a' + random.nextInt(26)));
+                }
+                line.append(' ');
+            }
+            Imgproc.putText(page, line.toString(), new Point(margin, y), Imgproc.FONT_HERSHEY_SIMPLEX,
+                    fontScale, new Scalar(30, 30, 30), thickness, Imgproc.LINE_AA);
+        }
+    }
+
+    /**
+     * 在页面下半部分画一个红色圆形印章，返回印章外边缘上均匀分布的点
+     * 旋转和透视变形后外接正方形的四个角会比印章大，用圆周上的点计算外接矩形才与印章贴合
+     */
+    private static List<Point> drawStamp(Mat page, Random random) {
+        int width = page.width();
+        int height = page.height();
+        int radius = width / 10;
+        int cx = radius * 2 + random.nextInt(Math.max(1, width - radius * 4));
+        int cy = height / 2 + random.nextInt(Math.max(1, height / 2 - radius * 2));
+        Scalar red = new Scalar(40, 40, 220);
+        int thickness = Math.max(2, radius / 12);
+        Imgproc.circle(page, new Point(cx, cy), radius, red, thickness, Imgproc.LINE_AA);
+        Imgproc.circle(page, new Point(cx, cy), radius / 4, red, -1, Imgproc.LINE_AA);
+        // 外边缘半径包括线宽的一半
+        double outer = radius + thickness / 2.0;
+        List<Point> outline = new ArrayList<>(OUTLINE_POINTS);
+        for (int i = 0; i < OUTLINE_POINTS; i++) {
+            double theta = 2 * Math.PI * i / OUTLINE_POINTS;
+            outline.add(new Point(cx + outer * Math.cos(theta), cy + outer * Math.sin(theta)));
+        }
+        return outline;
+    }
+
+    private static List<Point> affine(Mat matrix, List<Point> points) {
+        double[] m = new double[6];
+        matrix.get(0, 0, m);
+        List<Point> res = new ArrayList<>();
+        for (Point p : points) {
+            res.add(new Point(m[0] * p.x + m[1] * p.y + m[2], m[3] * p.x + m[4] * p.y + m[5]));
+        }
+        return res;
+    }
+
+    /**
+     * 图片参数
+     */
+    public static class Spec {
+
+        private final int width;
+
+        private final int height;
+
+        private final long seed;
+
+        private double skew;
+
+        private double sigma;
+
+        private int[] borders = new int[4];
+
+        private boolean stamp;
+
+        private double perspective;
+
+        public Spec(int width, int height, long seed) {
+            this.width = width;
+            this.height = height;
+            this.seed = seed;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * 倾斜角（度），正数为顺时针
+         */
+        public double getSkew() {
+            return skew;
+        }
+
+        public Spec setSkew(double skew) {
+            this.skew = skew;
+            return this;
+        }
+
+        /**
+         * 高斯模糊的sigma，0为不模糊
+         */
+        public double getSigma() {
+            return sigma;
+        }
+
+        public Spec setSigma(double sigma) {
+            this.sigma = sigma;
+            return this;
+        }
+
+        /**
+         * 黑边宽度，上右下左
+         */
+        public int[] getBorders() {
+            return borders;
+        }
+
+        public Spec setBorders(int top, int right, int bottom, int left) {
+            this.borders = new int[]{top, right, bottom, left};
+            return this;
+        }
+
+        public boolean isStamp() {
+            return stamp;
+        }
+
+        public Spec setStamp(boolean stamp) {
+            this.stamp = stamp;
+            return this;
+        }
+
+        /**
+         * 透视变形程度，四个角最多向内移动宽高的该比例
+         */
+        public double getPerspective() {
+            return perspective;
+        }
+
+        public Spec setPerspective(double perspective) {
+            this.perspective = perspective;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%dx%d skew=%.1f sigma=%.1f borders=%d/%d/%d/%d stamp=%s perspective=%.2f",
+                    width, height, skew, sigma, borders[0], borders[1], borders[2], borders[3], stamp, perspective);
+        }
+    }
+
+    /**
+     * 生成的图片及标注
+     */
+    public static class Sample {
+
+        private final Spec spec;
+
+        private final Mat mat;
+
+        private final Rect stampRect;
+
+        Sample(Spec spec, Mat mat, Rect stampRect) {
+            this.spec = spec;
+            this.mat = mat;
+            this.stampRect = stampRect;
+        }
+
+        public Spec getSpec() {
+            return spec;
+        }
+
+        /**
+         * 图片矩阵（BGR），由调用方释放
+         */
+        public Mat getMat() {
+            return mat;
+        }
+
+        /**
+         * 印章在最终图片中的外接矩形，没有印章时为null
+         */
+        public Rect getStampRect() {
+            return stampRect;
+        }
+
+        /**
+         * 去掉黑边后的内容区域
+         */
+        public Rect getContentRect() {
+            int[] b = spec.borders;
+            return new Rect(b[3], b[0], spec.width, spec.height);
+        }
+    }
+
+}
@@ -21,7 +21,7 @@ public class Test {
 
         Mat mat = Imgcodecs.imread(filePath);
         // 写出图片
-        Imgcodecs.imwrite(output, mat);
+        OpencvUtil.writeImage(mat, output);
     }
 
 }
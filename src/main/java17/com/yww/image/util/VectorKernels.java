@@ -0,0 +1,164 @@
+package com.yww.image.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>
+ *      像素计算的向量实现，结果与 {@link ScalarKernels} 完全一致
+ *      数组末尾不足一个向量的部分使用标量实现
+ * </p>
+ *
+ * @author yww
+ * @since 2026/10/19
+ */
+final class VectorKernels {
+
+    /**
+     * 打包时一个向量的位通过toLong取出，字节向量最多64个通道
+     */
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED.length() <= Long.SIZE
+            ? ByteVector.SPECIES_PREFERRED : ByteVector.SPECIES_512;
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * 求和时字节扩展为平台首选宽度的int向量，字节向量的通道数与int向量相同，最小为64位
+     */
+    private static final VectorSpecies<Integer> SUM_INTS = IntVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Byte> SUM_BYTES = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(Math.max(64, SUM_INTS.length() * Byte.SIZE)));
+
+    /**
+     * 一个字节向量扩展成的int向量个数，int向量不足8个通道时大于1
+     */
+    private static final int SUM_PARTS = Math.max(1, SUM_BYTES.length() / SUM_INTS.length());
+
+    /**
+     * 每个int通道累加的次数上限，255 * 2^20 * SUM_PARTS不会溢出
+     */
+    private static final int SUM_FLUSH = 1 << 20;
+
+    private VectorKernels() {
+    }
+
+    /**
+     * 平台是否真正支持向量计算
+     * 没有C2编译器或者CPU不支持SIMD时，首选宽度退化为64位，向量操作以Java代码模拟，比标量实现还慢
+     *
+     * @return  首选向量宽度至少为128位时为true
+     */
+    static boolean isAccelerated() {
+        return VectorShape.preferredShape().vectorBitSize() >= 128;
+    }
+
+    static long sum(byte[] data, int offset, int length) {
+        int step = SUM_BYTES.length();
+        int end = offset + length - length % step;
+        long sum = 0;
+        IntVector acc = IntVector.zero(SUM_INTS);
+        int rounds = 0;
+        int i = offset;
+        for (; i < end; i += step) {
+            // B2I是有符号扩展，再与0xff得到无符号值
+            ByteVector bytes = ByteVector.fromArray(SUM_BYTES, data, i);
+            for (int part = 0; part < SUM_PARTS; part++) {
+                IntVector ints = (IntVector) bytes.convertShape(VectorOperators.B2I, SUM_INTS, part);
+                acc = acc.add(ints.and(0xff));
+            }
+            if (++rounds == SUM_FLUSH) {
+                sum += acc.reduceLanesToLong(VectorOperators.ADD);
+                acc = IntVector.zero(SUM_INTS);
+                rounds = 0;
+            }
+        }
+        sum += acc.reduceLanesToLong(VectorOperators.ADD);
+        return sum + ScalarKernels.sum(data, i, offset + length - i);
+    }
+
+    static void histogram(byte[] data, int offset, int length, int[] hist) {
+        // 直方图是分散写入，向量化没有收益
+        ScalarKernels.histogram(data, offset, length, hist);
+    }
+
+    static int countRed(byte[] h, byte[] s, byte[] v, int length) {
+        int step = BYTES.length();
+        int end = length - length % step;
+        int count = 0;
+        int i = 0;
+        for (; i < end; i += step) {
+            ByteVector hue = ByteVector.fromArray(BYTES, h, i);
+            ByteVector saturation = ByteVector.fromArray(BYTES, s, i);
+            ByteVector value = ByteVector.fromArray(BYTES, v, i);
+            VectorMask<Byte> red = hue.compare(VectorOperators.UNSIGNED_GT, (byte) 0)
+                    .and(hue.compare(VectorOperators.UNSIGNED_LT, (byte) 10))
+                    .or(hue.compare(VectorOperators.UNSIGNED_GT, (byte) 156)
+                            .and(hue.compare(VectorOperators.UNSIGNED_LT, (byte) 180)));
+            VectorMask<Byte> mask = red
+                    .and(saturation.compare(VectorOperators.UNSIGNED_GT, (byte) 43))
+                    .and(saturation.compare(VectorOperators.UNSIGNED_LT, (byte) 255))
+                    .and(value.compare(VectorOperators.UNSIGNED_GT, (byte) 46))
+                    .and(value.compare(VectorOperators.UNSIGNED_LT, (byte) 255));
+            count += mask.trueCount();
+        }
+        for (; i < length; i++) {
+            if (ScalarKernels.isRed(h[i] & 0xff, s[i] & 0xff, v[i] & 0xff)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static void packBelow(byte[] gray, int length, int threshold, long[] words, int wordOffset) {
+        if (threshold <= 0 || threshold > 255) {
+            // 阈值超出字节范围时全部或全不为前景
+            ScalarKernels.packBelow(gray, length, threshold, words, wordOffset);
+            return;
+        }
+        // 向量长度为2的幂且不超过64，一个向量的位不会跨越两个long
+        int step = BYTES.length();
+        int end = length - length % step;
+        int x = 0;
+        for (; x < end; x += step) {
+            long bits = ByteVector.fromArray(BYTES, gray, x)
+                    .compare(VectorOperators.UNSIGNED_LT, (byte) threshold)
+                    .toLong();
+            words[wordOffset + (x >>> 6)] |= bits << (x & 63);
+        }
+        for (; x < length; x++) {
+            if ((gray[x] & 0xff) < threshold) {
+                words[wordOffset + (x >>> 6)] |= 1L << x;
+            }
+        }
+    }
+
+    static void packLuminanceBelow(int[] rgb, int length, int cutOff, long[] words, int wordOffset) {
+        int limit = cutOff * 1000;
+        int step = INTS.length();
+        int end = length - length % step;
+        int x = 0;
+        for (; x < end; x += step) {
+            IntVector pixel = IntVector.fromArray(INTS, rgb, x);
+            IntVector r = pixel.lanewise(VectorOperators.LSHR, 16).and(0xff);
+            IntVector g = pixel.lanewise(VectorOperators.LSHR, 8).and(0xff);
+            IntVector b = pixel.and(0xff);
+            long bits = r.mul(299).add(g.mul(587)).add(b.mul(114))
+                    .compare(VectorOperators.LT, limit)
+                    .toLong();
+            words[wordOffset + (x >>> 6)] |= bits << (x & 63);
+        }
+        for (; x < length; x++) {
+            int p = rgb[x];
+            int luminance = ((p >> 16) & 0xff) * 299 + ((p >> 8) & 0xff) * 587 + (p & 0xff) * 114;
+            if (luminance < limit) {
+                words[wordOffset + (x >>> 6)] |= 1L << x;
+            }
+        }
+    }
+
+}